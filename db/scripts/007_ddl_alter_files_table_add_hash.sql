@@ -0,0 +1,3 @@
+alter table files add column hash varchar;
+alter table files add column ref_count int not null default 1;
+alter table files add constraint files_hash_key unique (hash);
@@ -0,0 +1,5 @@
+create table file_deletions
+(
+    id   serial primary key,
+    path varchar not null
+);
@@ -0,0 +1 @@
+alter table files add column last_referenced timestamp not null default now();
@@ -0,0 +1,4 @@
+create index vacancies_creation_date_id_idx on vacancies (creation_date desc, id desc);
+create index candidates_creation_date_id_idx on candidates (creation_date desc, id desc);
+create index vacancies_file_id_idx on vacancies (file_id);
+create index candidates_file_id_idx on candidates (file_id);
@@ -0,0 +1,5 @@
+create table settings
+(
+    name  varchar primary key,
+    setting varchar not null
+);
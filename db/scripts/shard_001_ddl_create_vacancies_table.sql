@@ -0,0 +1,10 @@
+create table vacancies
+(
+    id            serial primary key,
+    title         varchar not null,
+    description   varchar not null,
+    creation_date timestamp,
+    visible       boolean not null,
+    city_id       int references cities(id),
+    file_id       int
+);
\ No newline at end of file
@@ -0,0 +1,9 @@
+create table candidates
+(
+     id            serial primary key,
+     name          varchar not null,
+     description   varchar not null,
+     creation_date timestamp,
+     city_id       int references cities(id),
+     file_id       int
+ );
\ No newline at end of file
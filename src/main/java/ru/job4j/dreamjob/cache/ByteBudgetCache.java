@@ -0,0 +1,147 @@
+package ru.job4j.dreamjob.cache;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * LRU-кеш, ограниченный суммарным весом значений в байтах, а не числом записей.
+ * Одновременные промахи по одному ключу выполняют загрузку один раз.
+ */
+@ThreadSafe
+public class ByteBudgetCache<K, V> {
+
+    private final long maxBytes;
+
+    private final ToLongFunction<V> weigher;
+
+    @GuardedBy("this")
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    @GuardedBy("this")
+    private long usedBytes;
+
+    private final Map<K, CompletableFuture<Optional<V>>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder puts = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public ByteBudgetCache(long maxBytes, ToLongFunction<V> weigher) {
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    public Optional<V> get(K key, Function<K, Optional<V>> loader) {
+        var cached = getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        misses.increment();
+        var future = new CompletableFuture<Optional<V>>();
+        var inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            var value = loader.apply(key);
+            /* если ключ инвалидировали во время загрузки, результат отдаем, но не кешируем */
+            if (loading.remove(key, future)) {
+                value.ifPresent(v -> put(key, v));
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Optional<V> await(CompletableFuture<Optional<V>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized V getIfPresent(K key) {
+        return entries.get(key);
+    }
+
+    private synchronized void put(K key, V value) {
+        var weight = weigher.applyAsLong(value);
+        if (weight > maxBytes) {
+            return;
+        }
+        var previous = entries.put(key, value);
+        if (previous != null) {
+            usedBytes -= weigher.applyAsLong(previous);
+        }
+        usedBytes += weight;
+        puts.increment();
+        var iterator = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && iterator.hasNext()) {
+            var eldest = iterator.next();
+            usedBytes -= weigher.applyAsLong(eldest.getValue());
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    public void invalidate(K key) {
+        loading.remove(key);
+        synchronized (this) {
+            var removed = entries.remove(key);
+            if (removed != null) {
+                usedBytes -= weigher.applyAsLong(removed);
+            }
+        }
+    }
+
+    public synchronized long size() {
+        return entries.size();
+    }
+
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long putCount() {
+        return puts.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,61 @@
+package ru.job4j.dreamjob.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+import java.util.List;
+
+/**
+ * Публикует в Micrometer стандартные метрики cache.gets, cache.puts, cache.evictions и cache.size,
+ * а также занятый и допустимый объем в байтах.
+ */
+public class ByteBudgetCacheMetrics extends CacheMeterBinder<ByteBudgetCache<?, ?>> {
+
+    public ByteBudgetCacheMetrics(ByteBudgetCache<?, ?> cache, String cacheName) {
+        super(cache, cacheName, List.<Tag>of());
+    }
+
+    @Override
+    protected Long size() {
+        var cache = getCache();
+        return cache == null ? null : cache.size();
+    }
+
+    @Override
+    protected long hitCount() {
+        var cache = getCache();
+        return cache == null ? 0 : cache.hitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        var cache = getCache();
+        return cache == null ? null : cache.missCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        var cache = getCache();
+        return cache == null ? null : cache.evictionCount();
+    }
+
+    @Override
+    protected long putCount() {
+        var cache = getCache();
+        return cache == null ? 0 : cache.putCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        Gauge.builder("cache.used.bytes", getCache(), ByteBudgetCache::usedBytes)
+                .tags(getTagsWithCacheName())
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("cache.max.bytes", getCache(), ByteBudgetCache::maxBytes)
+                .tags(getTagsWithCacheName())
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
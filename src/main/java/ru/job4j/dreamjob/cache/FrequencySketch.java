@@ -0,0 +1,74 @@
+package ru.job4j.dreamjob.cache;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import java.util.Arrays;
+
+/**
+ * Count-Min sketch с 4-битными счетчиками: приблизительная частота обращений к ключу за последнее время.
+ * После sampleSize обращений все счетчики делятся пополам, так что старая популярность постепенно забывается.
+ */
+@NotThreadSafe
+class FrequencySketch {
+
+    private static final int DEPTH = 4;
+
+    private static final int MAX_COUNT = 15;
+
+    private static final int[] SEEDS = {0x97cb3127, 0x8b3fc3ad, 0xc6e8c7e1, 0x2c1b3c6d};
+
+    private final int[] table;
+
+    private final int mask;
+
+    private final int sampleSize;
+
+    private int additions;
+
+    FrequencySketch(int capacity) {
+        var width = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1);
+        this.table = new int[width * DEPTH];
+        this.mask = width - 1;
+        this.sampleSize = Math.max(capacity, 8) * 10;
+    }
+
+    void increment(Object key) {
+        var hash = spread(key.hashCode());
+        var added = false;
+        for (var row = 0; row < DEPTH; row++) {
+            var index = indexOf(hash, row);
+            if (table[index] < MAX_COUNT) {
+                table[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        var hash = spread(key.hashCode());
+        var frequency = MAX_COUNT;
+        for (var row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, table[indexOf(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        Arrays.setAll(table, index -> table[index] >>> 1);
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int row) {
+        var h = (hash ^ SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 16;
+        return row * (mask + 1) + (h & mask);
+    }
+
+    private static int spread(int hash) {
+        var h = hash * 0x9e3779b9;
+        return h ^ (h >>> 15);
+    }
+}
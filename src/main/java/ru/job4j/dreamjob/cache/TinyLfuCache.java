@@ -0,0 +1,226 @@
+package ru.job4j.dreamjob.cache;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Кеш на maximumSize записей с политикой W-TinyLFU. Новые записи попадают в небольшое LRU-окно,
+ * а вытесненные из окна допускаются в основную область, только если по {@link FrequencySketch}
+ * к ним обращались чаще, чем к кандидату на вытеснение оттуда. Основная область делится на
+ * испытательный и защищенный LRU-сегменты: повторное обращение переводит запись в защищенный.
+ * Записи живут не дольше ttl. Одновременные промахи по одному ключу выполняют загрузку один раз.
+ */
+@ThreadSafe
+public class TinyLfuCache<K, V> {
+
+    private final int maximumSize;
+
+    private final int windowSize;
+
+    private final int protectedSize;
+
+    private final long ttlNanos;
+
+    private final LongSupplier ticker;
+
+    @GuardedBy("this")
+    private final FrequencySketch sketch;
+
+    @GuardedBy("this")
+    private final LinkedHashMap<K, Entry<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+
+    @GuardedBy("this")
+    private final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+    @GuardedBy("this")
+    private final LinkedHashMap<K, Entry<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<K, CompletableFuture<Optional<V>>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder puts = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder loads = new LongAdder();
+
+    private final LongAdder loadNanos = new LongAdder();
+
+    public TinyLfuCache(int maximumSize, Duration ttl) {
+        this(maximumSize, ttl, System::nanoTime);
+    }
+
+    public TinyLfuCache(int maximumSize, Duration ttl, LongSupplier ticker) {
+        this.maximumSize = maximumSize;
+        this.windowSize = Math.max(1, maximumSize / 100);
+        this.protectedSize = (maximumSize - windowSize) * 4 / 5;
+        this.ttlNanos = ttl.toNanos();
+        this.ticker = ticker;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    public Optional<V> get(K key, Function<K, Optional<V>> loader) {
+        var cached = getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        misses.increment();
+        var future = new CompletableFuture<Optional<V>>();
+        var inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            var start = ticker.getAsLong();
+            var value = loader.apply(key);
+            loads.increment();
+            loadNanos.add(ticker.getAsLong() - start);
+            /* если ключ инвалидировали во время загрузки, результат отдаем, но не кешируем */
+            if (loading.remove(key, future)) {
+                value.ifPresent(v -> put(key, v));
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Optional<V> await(CompletableFuture<Optional<V>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized V getIfPresent(K key) {
+        sketch.increment(key);
+        var entry = window.get(key);
+        if (entry == null) {
+            entry = protectedSegment.get(key);
+        }
+        if (entry == null) {
+            entry = probation.remove(key);
+            if (entry != null) {
+                promote(key, entry);
+            }
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (ticker.getAsLong() - entry.loadedAt > ttlNanos) {
+            remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    private void promote(K key, Entry<V> entry) {
+        protectedSegment.put(key, entry);
+        if (protectedSegment.size() > protectedSize) {
+            var eldest = protectedSegment.entrySet().iterator().next();
+            protectedSegment.remove(eldest.getKey());
+            probation.put(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private synchronized void put(K key, V value) {
+        remove(key);
+        window.put(key, new Entry<>(value, ticker.getAsLong()));
+        puts.increment();
+        if (window.size() <= windowSize) {
+            return;
+        }
+        var candidate = window.entrySet().iterator().next();
+        window.remove(candidate.getKey());
+        if (probation.size() + protectedSegment.size() < maximumSize - windowSize) {
+            probation.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+        var segment = probation.isEmpty() ? protectedSegment : probation;
+        evictions.increment();
+        if (segment.isEmpty()) {
+            return;
+        }
+        var victim = segment.keySet().iterator().next();
+        if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim)) {
+            segment.remove(victim);
+            probation.put(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    public void invalidate(K key) {
+        loading.remove(key);
+        synchronized (this) {
+            remove(key);
+        }
+    }
+
+    @GuardedBy("this")
+    private void remove(K key) {
+        if (window.remove(key) == null && probation.remove(key) == null) {
+            protectedSegment.remove(key);
+        }
+    }
+
+    public synchronized long size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long putCount() {
+        return puts.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public long loadCount() {
+        return loads.sum();
+    }
+
+    public long totalLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+
+        private final long loadedAt;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package ru.job4j.dreamjob.configuration;
 
-import org.apache.commons.dbcp2.BasicDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.sql2o.Sql2o;
@@ -9,30 +11,102 @@ import org.sql2o.converters.Converter;
 import org.sql2o.converters.ConverterException;
 import org.sql2o.quirks.NoQuirks;
 import org.sql2o.quirks.Quirks;
+import ru.job4j.dreamjob.datasource.ConnectionPool;
+import ru.job4j.dreamjob.datasource.ConnectionPoolMetrics;
+import ru.job4j.dreamjob.datasource.ConnectionPoolProperties;
+import ru.job4j.dreamjob.datasource.RoutingDataSource;
+import ru.job4j.dreamjob.datasource.Shards;
+import ru.job4j.dreamjob.datasource.StatementTimingDataSource;
+import ru.job4j.dreamjob.datasource.UnitOfWork;
+import ru.job4j.dreamjob.repository.SettingRepository;
+import ru.job4j.dreamjob.repository.Sql2oSettingRepository;
 
 import javax.sql.DataSource;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
+@EnableConfigurationProperties(ConnectionPoolProperties.class)
 public class DatasourceConfiguration {
 
+    private static final String SHARD_COUNT = "shards.count";
+
     @Bean
-    public DataSource connectionPool(@Value("${datasource.url}") String url,
-                                     @Value("${datasource.username}") String username,
-                                     @Value("${datasource.password}") String password) {
-        return new BasicDataSource() {
-            {
-                setUrl(url);
-                setUsername(username);
-                setPassword(password);
-            }
-        };
+    public ConnectionPool connectionPool(@Value("${datasource.url}") String url,
+                                         @Value("${datasource.username}") String username,
+                                         @Value("${datasource.password}") String password,
+                                         ConnectionPoolProperties properties) {
+        return new ConnectionPool(url, username, password, properties);
     }
 
     @Bean
-    public Sql2o databaseClient(DataSource dataSource) {
-        return new Sql2o(dataSource, createConverters());
+    public MeterBinder connectionPoolMetrics(ConnectionPool connectionPool) {
+        return new ConnectionPoolMetrics(connectionPool, "connectionPool");
+    }
+
+    @Bean
+    public UnitOfWork unitOfWork(DataSource connectionPool) {
+        return new UnitOfWork(connectionPool);
+    }
+
+    /* реплики берут учетные данные и настройки пула основной БД; connectionPool здесь вернул бы сам бин основной БД */
+    @Bean
+    public RoutingDataSource routingDataSource(UnitOfWork unitOfWork,
+                                               @Value("${datasource.replica.urls}") List<String> replicaUrls,
+                                               @Value("${datasource.username}") String username,
+                                               @Value("${datasource.password}") String password,
+                                               ConnectionPoolProperties properties, MeterRegistry meterRegistry) {
+        var replicas = new ArrayList<DataSource>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            var replica = new ConnectionPool(replicaUrls.get(i), username, password, properties);
+            new ConnectionPoolMetrics(replica, "replica-" + i).bindTo(meterRegistry);
+            replicas.add(replica);
+        }
+        return new RoutingDataSource(unitOfWork, replicas);
+    }
+
+    @Bean
+    public StatementTimingDataSource statementTiming(DataSource routingDataSource, MeterRegistry meterRegistry,
+                                                     @Value("${datasource.slow-statement-threshold}") Duration threshold,
+                                                     @Value("${datasource.redacted-columns}") List<String> redactedColumns) {
+        return new StatementTimingDataSource(routingDataSource, meterRegistry, threshold, redactedColumns);
+    }
+
+    @Bean
+    public Sql2o databaseClient(DataSource statementTiming) {
+        return new Sql2o(statementTiming, createConverters());
+    }
+
+    /* нулевой шард - основная БД со всеми обертками, дополнительные шарды ходят в свои пулы напрямую */
+    @Bean
+    public Shards shards(Sql2o databaseClient, @Value("${datasource.shards.urls}") List<String> shardUrls,
+                         @Value("${datasource.username}") String username,
+                         @Value("${datasource.password}") String password,
+                         @Value("${datasource.shards.threads}") int threads,
+                         ConnectionPoolProperties properties, MeterRegistry meterRegistry) {
+        var clients = new ArrayList<Sql2o>();
+        var pools = new ArrayList<ConnectionPool>();
+        clients.add(databaseClient);
+        for (int i = 0; i < shardUrls.size(); i++) {
+            var shard = new ConnectionPool(shardUrls.get(i), username, password, properties);
+            new ConnectionPoolMetrics(shard, "shard-" + (i + 1)).bindTo(meterRegistry);
+            pools.add(shard);
+            clients.add(new Sql2o(shard, createConverters()));
+        }
+        checkShardCount(new Sql2oSettingRepository(databaseClient), clients.size());
+        return new Shards(clients, pools, threads);
+    }
+
+    /* число шардов входит в выданные глобальные id, поэтому первое запущенное значение закрепляется в БД */
+    private void checkShardCount(SettingRepository settings, int count) {
+        var stored = settings.saveIfAbsent(SHARD_COUNT, String.valueOf(count));
+        if (!stored.equals(String.valueOf(count))) {
+            throw new IllegalStateException("Число шардов %d не совпадает с числом %s, с которым выданы id строк"
+                    .formatted(count, stored));
+        }
     }
 
     private Quirks createConverters() {
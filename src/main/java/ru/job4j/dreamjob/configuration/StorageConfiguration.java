@@ -0,0 +1,34 @@
+package ru.job4j.dreamjob.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import ru.job4j.dreamjob.storage.BlobStore;
+import ru.job4j.dreamjob.storage.DirectoryBlobStore;
+import ru.job4j.dreamjob.storage.SegmentBlobStore;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class StorageConfiguration {
+
+    /* file.storage=directory хранит каждый файл отдельно, file.storage=segment дописывает небольшие файлы в сегменты */
+    @Bean
+    public BlobStore blobStore(@Value("${file.storage}") String storage,
+                               @Value("${file.directory}") String directory,
+                               @Value("${file.segment.directory}") String segmentDirectory,
+                               @Value("${file.segment.max-size}") DataSize maxSegmentSize,
+                               @Value("${file.segment.max-blob-size}") DataSize maxBlobSize,
+                               @Value("${file.segment.compaction-threshold}") double compactionThreshold,
+                               @Value("${file.segment.compaction-interval}") Duration compactionInterval) {
+        var directoryBlobStore = new DirectoryBlobStore(Path.of(directory));
+        return switch (storage) {
+            case "directory" -> directoryBlobStore;
+            case "segment" -> new SegmentBlobStore(Path.of(segmentDirectory), directoryBlobStore,
+                    maxSegmentSize.toBytes(), maxBlobSize.toBytes(), compactionThreshold, compactionInterval);
+            default -> throw new IllegalArgumentException("Неизвестный способ хранения файлов: " + storage);
+        };
+    }
+}
@@ -1,35 +1,62 @@
 package ru.job4j.dreamjob.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import net.jcip.annotations.ThreadSafe;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import ru.job4j.dreamjob.dto.ExportFormat;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.PageCursor;
 import ru.job4j.dreamjob.model.Candidate;
 import ru.job4j.dreamjob.service.CandidateService;
 import ru.job4j.dreamjob.service.CityService;
+import ru.job4j.dreamjob.service.ExportService;
+
+import java.io.IOException;
 
 @Controller
 @RequestMapping("/candidates")
 @ThreadSafe
 public class CandidateController {
 
+    private static final int PAGE_SIZE = 20;
+
     private final CandidateService candidateService;
 
     private final CityService cityService;
 
-    public CandidateController(CandidateService candidateService, CityService cityService) {
+    private final ExportService exportService;
+
+    public CandidateController(CandidateService candidateService, CityService cityService,
+                               ExportService exportService) {
         this.candidateService = candidateService;
         this.cityService = cityService;
+        this.exportService = exportService;
     }
 
     @GetMapping
-    public String getAll(Model model) {
-        model.addAttribute("candidates", candidateService.findAll());
+    public String getAll(Model model, @RequestParam(required = false) String after,
+                         @RequestParam(required = false) String before) {
+        var page = candidateService.findSummaryPage(PageCursor.of(after, before), PAGE_SIZE);
+        model.addAttribute("candidates", page.getItems());
+        model.addAttribute("page", page);
         return "candidates/list";
     }
 
+    @GetMapping("/export")
+    public void export(@RequestParam(defaultValue = "csv") String format,
+                       HttpServletResponse response) throws IOException {
+        var exportFormat = ExportFormat.of(format);
+        response.setContentType(exportFormat.getMediaType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("candidates." + exportFormat.getExtension()).build().toString());
+        exportService.exportCandidates(exportFormat, response.getOutputStream());
+    }
+
     @GetMapping("/create")
     public String getCreationPage(Model model) {
         model.addAttribute("cities", cityService.findAll());
@@ -39,7 +66,7 @@ public class CandidateController {
     @PostMapping("/create")
     public String create(@ModelAttribute Candidate candidate, @RequestParam MultipartFile file, Model model) {
         try {
-            candidateService.save(candidate, new FileDto(file.getOriginalFilename(), file.getBytes()));
+            candidateService.save(candidate, new FileDto(file.getOriginalFilename(), file, file.getSize()));
             return "redirect:/candidates";
         } catch (Exception exception) {
             model.addAttribute("message", exception.getMessage());
@@ -62,7 +89,7 @@ public class CandidateController {
     @PostMapping("/update")
     public String update(@ModelAttribute Candidate candidate, @RequestParam MultipartFile file, Model model) {
         try {
-            boolean isUpdated = candidateService.update(candidate, new FileDto(file.getOriginalFilename(), file.getBytes()));
+            boolean isUpdated = candidateService.update(candidate, new FileDto(file.getOriginalFilename(), file, file.getSize()));
             if (!isUpdated) {
                 model.addAttribute("message", "Кандидат с указанным идентификатором не найден");
                 return "errors/404";
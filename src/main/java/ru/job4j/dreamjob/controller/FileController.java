@@ -1,28 +1,53 @@
 package ru.job4j.dreamjob.controller;
 
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import ru.job4j.dreamjob.dto.ImageSize;
 import ru.job4j.dreamjob.service.FileService;
 
+import java.time.Duration;
+
 @RestController
 @RequestMapping("/files")
 public class FileController {
 
+    /* идентификатор файла никогда не переиспользуется для другого содержимого, поэтому ответ неизменяем */
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(365))
+            .cachePrivate()
+            .immutable();
+
     private final FileService fileService;
 
     public FileController(FileService fileService) {
         this.fileService = fileService;
     }
 
+    /*
+     * тело отдается как Resource: Spring копирует его в ответ через буфер, сам обрабатывает заголовок Range,
+     * а по ETag и Last-Modified отвечает 304 на If-None-Match и If-Modified-Since, не открывая файл.
+     * Пока уменьшенная копия не готова, отдается оригинал, но без долгого кеширования на клиенте
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<?> getById(@PathVariable int id) {
-        var contentOptional = fileService.getFileById(id);
-        if (contentOptional.isEmpty()) {
+    public ResponseEntity<Resource> getById(@PathVariable int id,
+                                            @RequestParam(defaultValue = "original") String size) {
+        var imageSize = ImageSize.of(size);
+        var fileOptional = fileService.getFileById(id, imageSize);
+        if (fileOptional.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(contentOptional.get().getContent());
+        var file = fileOptional.get();
+        return ResponseEntity.ok()
+                .contentType(file.getMediaType())
+                .contentLength(file.getSize())
+                .eTag(file.getEtag())
+                .lastModified(file.getLastModified())
+                .cacheControl(file.getVariant() == imageSize ? CACHE_CONTROL : CacheControl.noCache())
+                .body(file.getResource());
     }
 }
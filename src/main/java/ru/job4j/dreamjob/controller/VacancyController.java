@@ -1,32 +1,56 @@
 package ru.job4j.dreamjob.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import net.jcip.annotations.ThreadSafe;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import ru.job4j.dreamjob.dto.ExportFormat;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.ImportReport;
+import ru.job4j.dreamjob.dto.PageCursor;
 import ru.job4j.dreamjob.model.Vacancy;
 import ru.job4j.dreamjob.service.CityService;
+import ru.job4j.dreamjob.service.ExportService;
+import ru.job4j.dreamjob.service.VacancyImportService;
 import ru.job4j.dreamjob.service.VacancyService;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 @Controller
 @RequestMapping("/vacancies")
 @ThreadSafe
 public class VacancyController {
 
+    private static final int PAGE_SIZE = 20;
+
     private final VacancyService vacancyService;
 
     private final CityService cityService;
 
-    public VacancyController(VacancyService vacancyService, CityService cityService) {
+    private final VacancyImportService vacancyImportService;
+
+    private final ExportService exportService;
+
+    public VacancyController(VacancyService vacancyService, CityService cityService,
+                             VacancyImportService vacancyImportService, ExportService exportService) {
         this.vacancyService = vacancyService;
         this.cityService = cityService;
+        this.vacancyImportService = vacancyImportService;
+        this.exportService = exportService;
     }
 
     @GetMapping
-    public String getAll(Model model) {
-        model.addAttribute("vacancies", vacancyService.findAll());
+    public String getAll(Model model, @RequestParam(required = false) String after,
+                         @RequestParam(required = false) String before) {
+        var page = vacancyService.findSummaryPage(PageCursor.of(after, before), PAGE_SIZE);
+        model.addAttribute("vacancies", page.getItems());
+        model.addAttribute("page", page);
         return "vacancies/list";
     }
 
@@ -39,7 +63,7 @@ public class VacancyController {
     @PostMapping("/create")
     public String create(@ModelAttribute Vacancy vacancy, @RequestParam MultipartFile file, Model model) {
         try {
-            vacancyService.save(vacancy, new FileDto(file.getOriginalFilename(), file.getBytes()));
+            vacancyService.save(vacancy, new FileDto(file.getOriginalFilename(), file, file.getSize()));
             return "redirect:/vacancies";
         } catch (Exception exception) {
             model.addAttribute("message", exception.getMessage());
@@ -47,6 +71,30 @@ public class VacancyController {
         }
     }
 
+    /* тело запроса читается потоком, поэтому размер загрузки не ограничен памятью */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @ResponseBody
+    public ImportReport importCsv(InputStream body) throws IOException {
+        return vacancyImportService.importCsv(body);
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ImportReport importJson(InputStream body) throws IOException {
+        return vacancyImportService.importJson(body);
+    }
+
+    /* ответ пишется по мере чтения БД курсором; сжатие на лету включает server.compression */
+    @GetMapping("/export")
+    public void export(@RequestParam(defaultValue = "csv") String format,
+                       HttpServletResponse response) throws IOException {
+        var exportFormat = ExportFormat.of(format);
+        response.setContentType(exportFormat.getMediaType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("vacancies." + exportFormat.getExtension()).build().toString());
+        exportService.exportVacancies(exportFormat, response.getOutputStream());
+    }
+
     @GetMapping("/{id}")
     public String getById(Model model, @PathVariable int id) {
         var vacancyOptional = vacancyService.findById(id);
@@ -62,7 +110,7 @@ public class VacancyController {
     @PostMapping("/update")
     public String update(@ModelAttribute Vacancy vacancy, @RequestParam MultipartFile file, Model model) {
         try {
-            var isUpdated = vacancyService.update(vacancy, new FileDto(file.getOriginalFilename(), file.getBytes()));
+            var isUpdated = vacancyService.update(vacancy, new FileDto(file.getOriginalFilename(), file, file.getSize()));
             if (!isUpdated) {
                 model.addAttribute("message", "Вакансия с указанным идентификатором не найдена");
                 return "errors/404";
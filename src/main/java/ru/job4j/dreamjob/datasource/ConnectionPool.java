@@ -0,0 +1,91 @@
+package ru.job4j.dreamjob.datasource;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.time.Duration;
+
+/**
+ * Пул соединений DBCP с настройками из {@link ConnectionPoolProperties}. Подготовленные запросы кешируются
+ * в каждом соединении, утекшие соединения закрываются пулом, а трасса места, где их взяли, пишется в лог.
+ * Дополнительно отдает статистику ожидания из commons-pool, которую BasicDataSource не публикует.
+ */
+public class ConnectionPool extends BasicDataSource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectionPool.class.getName());
+
+    public ConnectionPool(String url, String username, String password, ConnectionPoolProperties properties) {
+        setUrl(url);
+        setUsername(username);
+        setPassword(password);
+        setMaxTotal(properties.getMaxTotal());
+        setMinIdle(properties.getMinIdle());
+        setMaxIdle(properties.getMaxIdle());
+        setMaxWaitMillis(properties.getMaxWait().toMillis());
+        /* без validationQuery проверка идет через Connection.isValid */
+        setTestOnBorrow(true);
+        setTestWhileIdle(true);
+        setValidationQueryTimeout((int) properties.getValidationTimeout().toSeconds());
+        setTimeBetweenEvictionRunsMillis(properties.getEvictionInterval().toMillis());
+        setPoolPreparedStatements(true);
+        setMaxOpenPreparedStatements(properties.getMaxOpenPreparedStatements());
+        setRemoveAbandonedOnBorrow(true);
+        setRemoveAbandonedOnMaintenance(true);
+        setRemoveAbandonedTimeout((int) properties.getAbandonedTimeout().toSeconds());
+        setLogAbandoned(true);
+        setAbandonedLogWriter(new PrintWriter(new LeakLog()));
+    }
+
+    /* пул создается при первом getConnection, до этого ожидающих нет */
+    public int getNumWaiters() {
+        var pool = getConnectionPool();
+        return pool == null ? 0 : pool.getNumWaiters();
+    }
+
+    public long getBorrowedCount() {
+        var pool = getConnectionPool();
+        return pool == null ? 0 : pool.getBorrowedCount();
+    }
+
+    /* среднее ожидание по последним 100 выдачам */
+    public Duration getMeanBorrowWait() {
+        var pool = getConnectionPool();
+        return pool == null ? Duration.ZERO : pool.getMeanBorrowWaitDuration();
+    }
+
+    public Duration getMaxBorrowWait() {
+        var pool = getConnectionPool();
+        return pool == null ? Duration.ZERO : pool.getMaxBorrowWaitDuration();
+    }
+
+    /* commons-pool пишет трассу утекшего соединения построчно и затем сбрасывает writer, в лог она уходит одним сообщением */
+    private static final class LeakLog extends Writer {
+
+        private final StringBuilder buffer = new StringBuilder();
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            synchronized (buffer) {
+                buffer.append(chars, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() {
+            synchronized (buffer) {
+                if (!buffer.isEmpty()) {
+                    LOG.warn("Соединение не возвращено в пул и закрыто: {}", buffer.toString().stripTrailing());
+                    buffer.setLength(0);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+}
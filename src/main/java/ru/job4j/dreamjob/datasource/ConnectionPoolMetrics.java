@@ -0,0 +1,61 @@
+package ru.job4j.dreamjob.datasource;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Публикует состояние пула в метриках jdbc.connections.*: занятые, свободные и ожидающие соединения,
+ * границы пула и время ожидания соединения. Насыщение видно, когда active держится у max, а pending растет.
+ */
+public class ConnectionPoolMetrics implements MeterBinder {
+
+    private final ConnectionPool pool;
+
+    private final Tags tags;
+
+    public ConnectionPoolMetrics(ConnectionPool pool, String name) {
+        this.pool = pool;
+        this.tags = Tags.of("name", name);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("jdbc.connections.active", pool, ConnectionPool::getNumActive)
+                .tags(tags)
+                .description("Соединения, выданные из пула")
+                .register(registry);
+        Gauge.builder("jdbc.connections.idle", pool, ConnectionPool::getNumIdle)
+                .tags(tags)
+                .description("Свободные соединения в пуле")
+                .register(registry);
+        Gauge.builder("jdbc.connections.pending", pool, ConnectionPool::getNumWaiters)
+                .tags(tags)
+                .description("Потоки, ожидающие соединение")
+                .register(registry);
+        Gauge.builder("jdbc.connections.max", pool, ConnectionPool::getMaxTotal)
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("jdbc.connections.min", pool, ConnectionPool::getMinIdle)
+                .tags(tags)
+                .register(registry);
+        TimeGauge.builder("jdbc.connections.wait.mean", pool, TimeUnit.MILLISECONDS,
+                        p -> p.getMeanBorrowWait().toNanos() / 1_000_000.0)
+                .tags(tags)
+                .description("Среднее ожидание соединения по последним выдачам")
+                .register(registry);
+        TimeGauge.builder("jdbc.connections.wait.max", pool, TimeUnit.MILLISECONDS,
+                        p -> p.getMaxBorrowWait().toNanos() / 1_000_000.0)
+                .tags(tags)
+                .description("Наибольшее ожидание соединения с запуска")
+                .register(registry);
+        FunctionCounter.builder("jdbc.connections.borrowed", pool, ConnectionPool::getBorrowedCount)
+                .tags(tags)
+                .register(registry);
+    }
+}
@@ -0,0 +1,96 @@
+package ru.job4j.dreamjob.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки пула соединений datasource.pool.*. Значения по умолчанию рассчитаны на один узел приложения
+ * и используются тестами, которые создают пул без Spring.
+ */
+@ConfigurationProperties("datasource.pool")
+public class ConnectionPoolProperties {
+
+    private int maxTotal = 20;
+
+    private int minIdle = 2;
+
+    private int maxIdle = 8;
+
+    /* сколько запрос ждет свободное соединение, прежде чем получить ошибку, вместо бесконечного ожидания DBCP */
+    private Duration maxWait = Duration.ofSeconds(5);
+
+    private Duration validationTimeout = Duration.ofSeconds(2);
+
+    private Duration evictionInterval = Duration.ofSeconds(30);
+
+    /* подготовленных запросов на одно соединение; SQL в репозиториях постоянный, поэтому их немного */
+    private int maxOpenPreparedStatements = 100;
+
+    /* соединение, не возвращенное дольше этого срока, считается утекшим и закрывается пулом */
+    private Duration abandonedTimeout = Duration.ofMinutes(5);
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    public void setMaxIdle(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public Duration getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    public void setValidationTimeout(Duration validationTimeout) {
+        this.validationTimeout = validationTimeout;
+    }
+
+    public Duration getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    public void setEvictionInterval(Duration evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+
+    public int getMaxOpenPreparedStatements() {
+        return maxOpenPreparedStatements;
+    }
+
+    public void setMaxOpenPreparedStatements(int maxOpenPreparedStatements) {
+        this.maxOpenPreparedStatements = maxOpenPreparedStatements;
+    }
+
+    public Duration getAbandonedTimeout() {
+        return abandonedTimeout;
+    }
+
+    public void setAbandonedTimeout(Duration abandonedTimeout) {
+        this.abandonedTimeout = abandonedTimeout;
+    }
+}
@@ -0,0 +1,163 @@
+package ru.job4j.dreamjob.datasource;
+
+import net.jcip.annotations.ThreadSafe;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+@ThreadSafe
+public class RoutingDataSource implements DataSource, AutoCloseable {
+
+    private static final ThreadLocal<Route> ROUTE = new ThreadLocal<>();
+
+    private static final Pattern DATA_CHANGE_DELTA = Pattern.compile("\\b(OLD|NEW|FINAL)\\s+TABLE\\s*\\(");
+
+    private final UnitOfWork primary;
+
+    private final List<DataSource> replicas;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final ThreadLocal<Session> session = ThreadLocal.withInitial(Session::new);
+
+    public RoutingDataSource(UnitOfWork primary, List<DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+    }
+
+    public static <T> T readOnly(Supplier<T> work) {
+        return route(Route.REPLICA, work);
+    }
+
+    public static <T> T onPrimary(Supplier<T> work) {
+        return route(Route.PRIMARY, work);
+    }
+
+    private static <T> T route(Route route, Supplier<T> work) {
+        var previous = ROUTE.get();
+        if (previous == Route.PRIMARY) {
+            return work.get();
+        }
+        ROUTE.set(route);
+        try {
+            return work.get();
+        } finally {
+            ROUTE.set(previous);
+        }
+    }
+
+    public void beginSession(boolean sticky) {
+        var current = session.get();
+        current.sticky = sticky;
+        current.wrote = false;
+    }
+
+    public boolean endSession() {
+        var current = session.get();
+        current.sticky = false;
+        return current.wrote;
+    }
+
+    /* на реплику идет только readOnly вне единицы работы и только у сессии, которая недавно не писала */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replicas.isEmpty()) {
+            return primary.getConnection();
+        }
+        var current = session.get();
+        if (ROUTE.get() == Route.REPLICA && !current.sticky && !primary.isActive()) {
+            return replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size())).getConnection();
+        }
+        return writeTracking(primary.getConnection(), current);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Соединения выдаются только с учетными данными пула");
+    }
+
+    private static Connection writeTracking(Connection connection, Session session) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    var name = method.getName();
+                    if (name.startsWith("prepare") && args != null && args[0] instanceof String sql) {
+                        var statement = sql.strip().toUpperCase(Locale.ROOT);
+                        session.wrote |= !statement.startsWith("SELECT") || statement.contains("FOR UPDATE")
+                                || DATA_CHANGE_DELTA.matcher(statement).find();
+                    } else if ("createStatement".equals(name)) {
+                        session.wrote = true;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (var replica : replicas) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        return type.isInstance(this) ? type.cast(this) : primary.unwrap(type);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) throws SQLException {
+        return type.isInstance(this) || primary.isWrapperFor(type);
+    }
+
+    private enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private static final class Session {
+
+        private boolean sticky;
+
+        private boolean wrote;
+    }
+}
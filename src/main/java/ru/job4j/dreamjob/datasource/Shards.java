@@ -0,0 +1,126 @@
+package ru.job4j.dreamjob.datasource;
+
+import net.jcip.annotations.ThreadSafe;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.dto.PageCursor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * Базы, между которыми по городу делятся вакансии и кандидаты. Нулевой шард - основная БД,
+ * остальные заданы в datasource.shards.urls. Строка попадает в шард city_id mod N и остается
+ * в нем и после смены города: глобальный id равен local_id * N + номер шарда, так что шард
+ * всегда восстанавливается по id. При одном шарде глобальные id совпадают с id в таблице.
+ * Поэтому N нельзя менять после выдачи первых id: старые id указали бы на другие строки.
+ * Число шардов записывается в таблицу settings основной БД при первом запуске, и приложение
+ * с другим N не стартует; переход на новое N требует переноса строк с перевыдачей id.
+ */
+@ThreadSafe
+public class Shards implements AutoCloseable {
+
+    private final List<Sql2o> clients;
+
+    private final List<ConnectionPool> shardPools;
+
+    private final ExecutorService executor;
+
+    public Shards(List<Sql2o> clients, List<ConnectionPool> shardPools, int threads) {
+        this.clients = List.copyOf(clients);
+        this.shardPools = List.copyOf(shardPools);
+        this.executor = clients.size() == 1 ? null : Executors.newFixedThreadPool(threads, runnable -> {
+            var thread = new Thread(runnable, "shard-gather");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int count() {
+        return clients.size();
+    }
+
+    public Sql2o client(int shard) {
+        return clients.get(shard);
+    }
+
+    public int ofCity(int cityId) {
+        return Math.floorMod(cityId, clients.size());
+    }
+
+    public int ofId(int id) {
+        return Math.floorMod(id, clients.size());
+    }
+
+    public int localId(int id) {
+        return Math.floorDiv(id, clients.size());
+    }
+
+    public int globalId(int localId, int shard) {
+        return localId * clients.size() + shard;
+    }
+
+    /**
+     * Переводит курсор по глобальным id в курсор по id шарда с тем же набором строк:
+     * при равной дате local * N + shard < id равносильно local < ceil((id - shard) / N),
+     * а local * N + shard > id равносильно local > floor((id - shard) / N).
+     */
+    public PageCursor localCursor(PageCursor cursor, int shard) {
+        if (cursor == null) {
+            return null;
+        }
+        var offset = cursor.getId() - shard;
+        return cursor.isBackward()
+                ? PageCursor.before(cursor.getCreationDate(), Math.floorDiv(offset, clients.size()))
+                : PageCursor.after(cursor.getCreationDate(), -Math.floorDiv(-offset, clients.size()));
+    }
+
+    /**
+     * Выполняет запрос на всех шардах параллельно и возвращает результаты в порядке шардов.
+     * Нулевой шард опрашивается в вызывающем потоке, чтобы на основной БД сохранились единица
+     * работы и маршрутизация на реплики, которые привязаны к потоку.
+     */
+    public <T> List<T> gather(IntFunction<T> query) {
+        if (executor == null) {
+            return List.of(query.apply(0));
+        }
+        var futures = new ArrayList<Future<T>>(clients.size() - 1);
+        for (int shard = 1; shard < clients.size(); shard++) {
+            var number = shard;
+            futures.add(executor.submit(() -> query.apply(number)));
+        }
+        var results = new ArrayList<T>(clients.size());
+        try {
+            results.add(query.apply(0));
+            for (var future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Опрос шардов прерван", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Не удалось опросить шард", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    /* пул основной БД принадлежит контексту, закрываются только пулы дополнительных шардов */
+    @Override
+    public void close() throws Exception {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        for (var pool : shardPools) {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ru.job4j.dreamjob.datasource;
+
+/**
+ * Сводка по одному шаблону SQL. Процентили и максимум считаются по скользящему окну Micrometer,
+ * то есть по последним минутам, а число выполнений и суммарное время - с запуска. meanRows - среднее число
+ * строк на выполнение: измененных для команд и прочитанных для запросов, по выборке выполнений.
+ */
+public class StatementStats {
+
+    private final String sql;
+
+    private final long count;
+
+    private final double totalMs;
+
+    private final double p50Ms;
+
+    private final double p99Ms;
+
+    private final double maxMs;
+
+    private final double meanRows;
+
+    public StatementStats(String sql, long count, double totalMs,
+                          double p50Ms, double p99Ms, double maxMs, double meanRows) {
+        this.sql = sql;
+        this.count = count;
+        this.totalMs = totalMs;
+        this.p50Ms = p50Ms;
+        this.p99Ms = p99Ms;
+        this.maxMs = maxMs;
+        this.meanRows = meanRows;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getTotalMs() {
+        return totalMs;
+    }
+
+    public double getMeanMs() {
+        return count == 0 ? 0 : totalMs / count;
+    }
+
+    public double getP50Ms() {
+        return p50Ms;
+    }
+
+    public double getP99Ms() {
+        return p99Ms;
+    }
+
+    public double getMaxMs() {
+        return maxMs;
+    }
+
+    public double getMeanRows() {
+        return meanRows;
+    }
+}
@@ -0,0 +1,26 @@
+package ru.job4j.dreamjob.datasource;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Сводка по всем выполненным шаблонам SQL через GET /actuator/statements, самые затратные первыми.
+ */
+@Component
+@Endpoint(id = "statements")
+public class StatementStatsEndpoint {
+
+    private final StatementTimingDataSource statementTiming;
+
+    public StatementStatsEndpoint(StatementTimingDataSource statementTiming) {
+        this.statementTiming = statementTiming;
+    }
+
+    @ReadOperation
+    public List<StatementStats> statements() {
+        return statementTiming.stats();
+    }
+}
@@ -0,0 +1,281 @@
+package ru.job4j.dreamjob.datasource;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Источник соединений, который замеряет каждый выполненный подготовленный запрос. Время и число строк
+ * копятся по шаблону SQL в метриках db.statement и db.statement.rows с тегом sql, списки IN (?, ?, ...)
+ * разной длины сводятся к одному шаблону. Запросы дольше порога пишутся в лог с параметрами, а параметры
+ * запросов, которые упоминают колонки из redactedColumns, в лог не попадают.
+ */
+@ThreadSafe
+public class StatementTimingDataSource implements DataSource {
+
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(StatementTimingDataSource.class.getName());
+
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /*
+     * строки результата считаются через обертку ResultSet, а она стоит около 200 байт на строку,
+     * поэтому считается только каждое ROWS_SAMPLE-е выполнение запроса; число строк изменений известно всегда
+     */
+    private static final int ROWS_SAMPLE = 16;
+
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final DataSource dataSource;
+
+    private final MeterRegistry registry;
+
+    private final long slowNanos;
+
+    private final List<String> redactedColumns;
+
+    private final Map<String, Template> templates = new ConcurrentHashMap<>();
+
+    /* SQL в том виде, в каком его подготавливает Sql2o; разных строк не больше, чем разных длин списков IN */
+    private final Map<String, Template> templatesBySql = new ConcurrentHashMap<>();
+
+    public StatementTimingDataSource(DataSource dataSource, MeterRegistry registry, Duration slowThreshold,
+                                     Collection<String> redactedColumns) {
+        this.dataSource = dataSource;
+        this.registry = registry;
+        this.slowNanos = slowThreshold.toNanos();
+        this.redactedColumns = redactedColumns.stream().map(column -> column.toLowerCase(Locale.ROOT)).toList();
+    }
+
+    /* сводка по шаблонам, самые затратные по суммарному времени первыми */
+    public List<StatementStats> stats() {
+        return templates.values().stream()
+                .map(Template::stats)
+                .sorted(Comparator.comparingDouble(StatementStats::getTotalMs).reversed())
+                .toList();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return timed(dataSource.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return timed(dataSource.getConnection(username, password));
+    }
+
+    private Connection timed(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    var result = invoke(connection, method, args);
+                    if (result instanceof PreparedStatement statement && "prepareStatement".equals(method.getName())) {
+                        return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                new Class<?>[]{PreparedStatement.class},
+                                new TimedStatement(template((String) args[0]), statement));
+                    }
+                    return result;
+                });
+    }
+
+    private Template template(String sql) {
+        return templatesBySql.computeIfAbsent(sql, raw -> templates.computeIfAbsent(
+                WHITESPACE.matcher(IN_LIST.matcher(raw.strip()).replaceAll("IN (?, ...)")).replaceAll(" "),
+                Template::new));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        return type.isInstance(this) ? type.cast(this) : dataSource.unwrap(type);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) throws SQLException {
+        return type.isInstance(this) || dataSource.isWrapperFor(type);
+    }
+
+    private final class Template {
+
+        private final String sql;
+
+        private final boolean redacted;
+
+        private final Timer timer;
+
+        private final DistributionSummary rows;
+
+        private final AtomicLong queries = new AtomicLong();
+
+        private Template(String sql) {
+            this.sql = sql;
+            var lowerCase = sql.toLowerCase(Locale.ROOT);
+            this.redacted = redactedColumns.stream().anyMatch(lowerCase::contains);
+            this.timer = Timer.builder("db.statement")
+                    .tag("sql", sql)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(registry);
+            this.rows = DistributionSummary.builder("db.statement.rows")
+                    .tag("sql", sql)
+                    .register(registry);
+        }
+
+        private StatementStats stats() {
+            var snapshot = timer.takeSnapshot();
+            var percentiles = snapshot.percentileValues();
+            return new StatementStats(sql, snapshot.count(),
+                    snapshot.total(TimeUnit.MILLISECONDS),
+                    percentiles[0].value(TimeUnit.MILLISECONDS), percentiles[1].value(TimeUnit.MILLISECONDS),
+                    snapshot.max(TimeUnit.MILLISECONDS), rows.mean());
+        }
+
+        private boolean sampleRows() {
+            return queries.getAndIncrement() % ROWS_SAMPLE == 0;
+        }
+    }
+
+    /* подготовленный запрос, который запоминает параметры и замеряет выполнение */
+    private final class TimedStatement implements InvocationHandler {
+
+        private final Template template;
+
+        private final PreparedStatement statement;
+
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+
+        /* строки результата, который сейчас читается; -1, если он не считается или уже учтен */
+        private long rowCount = -1;
+
+        private TimedStatement(Template template, PreparedStatement statement) {
+            this.template = template;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            var name = method.getName();
+            if (EXECUTE_METHODS.contains(name) && (args == null || args.length == 0)) {
+                return execute(method);
+            }
+            if ("getResultSet".equals(name)) {
+                return counting((ResultSet) StatementTimingDataSource.invoke(statement, method, args));
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, "setNull".equals(name) ? null : args[1]);
+            } else if ("clearParameters".equals(name)) {
+                parameters.clear();
+            } else if ("close".equals(name)) {
+                recordRows();
+            }
+            return StatementTimingDataSource.invoke(statement, method, args);
+        }
+
+        private Object execute(Method method) throws Throwable {
+            var start = System.nanoTime();
+            try {
+                var result = StatementTimingDataSource.invoke(statement, method, null);
+                if (result instanceof Number count) {
+                    template.rows.record(count.doubleValue());
+                } else if (result instanceof int[] counts) {
+                    template.rows.record(Arrays.stream(counts).filter(count -> count > 0).sum());
+                }
+                return result instanceof ResultSet resultSet ? counting(resultSet) : result;
+            } finally {
+                var elapsed = System.nanoTime() - start;
+                template.timer.record(elapsed, TimeUnit.NANOSECONDS);
+                if (elapsed >= slowNanos) {
+                    LOG.warn("Медленный запрос, {} мс: {} параметры: {}", TimeUnit.NANOSECONDS.toMillis(elapsed),
+                            template.sql, template.redacted ? "скрыты" : parameters.values());
+                }
+            }
+        }
+
+        /* строки считаются по мере чтения и учитываются при закрытии результата или самого запроса */
+        private ResultSet counting(ResultSet resultSet) {
+            if (resultSet == null || !template.sampleRows()) {
+                return resultSet;
+            }
+            recordRows();
+            rowCount = 0;
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        var result = StatementTimingDataSource.invoke(resultSet, method, args);
+                        if ("next".equals(method.getName()) && (Boolean) result) {
+                            rowCount++;
+                        } else if ("close".equals(method.getName())) {
+                            recordRows();
+                        }
+                        return result;
+                    });
+        }
+
+        private void recordRows() {
+            if (rowCount >= 0) {
+                template.rows.record(rowCount);
+                rowCount = -1;
+            }
+        }
+    }
+}
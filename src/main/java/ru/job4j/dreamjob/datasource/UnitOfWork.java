@@ -0,0 +1,247 @@
+package ru.job4j.dreamjob.datasource;
+
+import net.jcip.annotations.ThreadSafe;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+@ThreadSafe
+public class UnitOfWork implements DataSource {
+
+    private final DataSource dataSource;
+
+    private final ThreadLocal<Unit> current = new ThreadLocal<>();
+
+    private final ThreadLocal<int[]> borrowed = ThreadLocal.withInitial(() -> new int[1]);
+
+    public UnitOfWork(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /* внутри внешнего вызова поток получает одно соединение, которое фиксируется одним коммитом в конце */
+    public <T> T execute(Supplier<T> work) {
+        if (current.get() != null) {
+            return work.get();
+        }
+        var unit = new Unit();
+        current.set(unit);
+        T result;
+        Throwable failure = null;
+        try {
+            result = work.get();
+            unit.commit();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            unit.rollback(e);
+            throw e;
+        } finally {
+            current.remove();
+            unit.release(failure);
+        }
+        unit.afterCommit.forEach(Runnable::run);
+        return result;
+    }
+
+    public boolean isActive() {
+        return current.get() != null;
+    }
+
+    public void afterCommit(Runnable action) {
+        var unit = current.get();
+        if (unit == null) {
+            action.run();
+        } else {
+            unit.afterCommit.add(action);
+        }
+    }
+
+    public int resetBorrowCount() {
+        var counter = borrowed.get();
+        var count = counter[0];
+        counter[0] = 0;
+        return count;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        var unit = current.get();
+        if (unit == null) {
+            return borrow();
+        }
+        return unit.connection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Соединения выдаются только с учетными данными пула");
+    }
+
+    private Connection borrow() throws SQLException {
+        borrowed.get()[0]++;
+        return dataSource.getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        return type.isInstance(this) ? type.cast(this) : dataSource.unwrap(type);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) throws SQLException {
+        return type.isInstance(this) || dataSource.isWrapperFor(type);
+    }
+
+    private final class Unit {
+
+        private final List<Runnable> afterCommit = new ArrayList<>();
+
+        private Connection connection;
+
+        private boolean rollbackOnly;
+
+        Connection connection() throws SQLException {
+            if (connection == null) {
+                connection = borrow();
+                connection.setAutoCommit(false);
+            }
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new BoundConnection(this, connection));
+        }
+
+        void commit() {
+            if (connection == null) {
+                return;
+            }
+            if (rollbackOnly) {
+                throw new IllegalStateException("Единица работы помечена к откату одним из репозиториев");
+            }
+            try {
+                connection.commit();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Не удалось зафиксировать единицу работы", e);
+            }
+        }
+
+        void rollback(Throwable cause) {
+            if (connection == null) {
+                return;
+            }
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                if (cause != null) {
+                    cause.addSuppressed(e);
+                }
+            }
+        }
+
+        void release(Throwable cause) {
+            if (connection == null) {
+                return;
+            }
+            SQLException failure = null;
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                failure = e;
+            } finally {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure == null) {
+                return;
+            }
+            if (cause != null) {
+                cause.addSuppressed(failure);
+            } else {
+                throw new IllegalStateException("Не удалось вернуть соединение в пул", failure);
+            }
+        }
+    }
+
+    private static final class BoundConnection implements InvocationHandler {
+
+        private final Unit unit;
+
+        private final Connection connection;
+
+        private boolean autoCommit = true;
+
+        private boolean closed;
+
+        private BoundConnection(Unit unit, Connection connection) {
+            this.unit = unit;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "commit", "setTransactionIsolation":
+                    return null;
+                case "rollback":
+                    unit.rollbackOnly = true;
+                    return null;
+                default:
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
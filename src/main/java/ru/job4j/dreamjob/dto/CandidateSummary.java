@@ -0,0 +1,69 @@
+package ru.job4j.dreamjob.dto;
+
+import ru.job4j.dreamjob.model.Candidate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка списка кандидатов: только поля, которые показывает список, и название города вместо его id.
+ */
+public class CandidateSummary {
+
+    private final int id;
+
+    private final String name;
+
+    private final LocalDateTime creationDate;
+
+    private final int cityId;
+
+    private final String cityName;
+
+    private final int fileId;
+
+    public CandidateSummary(int id, String name, LocalDateTime creationDate, int cityId, String cityName, int fileId) {
+        this.id = id;
+        this.name = name;
+        this.creationDate = creationDate;
+        this.cityId = cityId;
+        this.cityName = cityName;
+        this.fileId = fileId;
+    }
+
+    public static CandidateSummary of(Candidate candidate) {
+        return new CandidateSummary(candidate.getId(), candidate.getName(), candidate.getCreationDate(), candidate.getCityId(),
+                null, candidate.getFileId());
+    }
+
+    public CandidateSummary withCityName(String cityName) {
+        return new CandidateSummary(id, name, creationDate, cityId, cityName, fileId);
+    }
+
+    public CandidateSummary withId(int id) {
+        return new CandidateSummary(id, name, creationDate, cityId, cityName, fileId);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public int getCityId() {
+        return cityId;
+    }
+
+    public String getCityName() {
+        return cityName;
+    }
+
+    public int getFileId() {
+        return fileId;
+    }
+}
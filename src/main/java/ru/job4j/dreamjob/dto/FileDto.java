@@ -1,14 +1,24 @@
 package ru.job4j.dreamjob.dto;
 
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+
 public class FileDto {
 
     private String name;
 
-    private byte[] content; /*тут кроется различие. доменная модель хранит путь, а не содержимое*/
+    private InputStreamSource content; /*тут кроется различие. доменная модель хранит путь, а не содержимое*/
+
+    private long size;
 
     public FileDto(String name, byte[] content) {
+        this(name, new ByteArrayResource(content), content.length);
+    }
+
+    public FileDto(String name, InputStreamSource content, long size) {
         this.name = name;
         this.content = content;
+        this.size = size;
     }
 
     public String getName() {
@@ -19,11 +29,19 @@ public class FileDto {
         this.name = name;
     }
 
-    public byte[] getContent() {
+    public InputStreamSource getContent() {
         return content;
     }
 
-    public void setContent(byte[] content) {
+    public void setContent(InputStreamSource content) {
         this.content = content;
     }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
 }
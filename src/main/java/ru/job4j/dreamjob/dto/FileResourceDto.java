@@ -0,0 +1,60 @@
+package ru.job4j.dreamjob.dto;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+
+public class FileResourceDto {
+
+    private final String name;
+
+    private final MediaType mediaType;
+
+    private final long size;
+
+    private final String etag;
+
+    private final long lastModified;
+
+    private final ImageSize variant;
+
+    private final Resource resource; /*содержимое не читается в память, а отдается потоком*/
+
+    public FileResourceDto(String name, MediaType mediaType, long size, String etag, long lastModified,
+                           ImageSize variant, Resource resource) {
+        this.name = name;
+        this.mediaType = mediaType;
+        this.size = size;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.variant = variant;
+        this.resource = resource;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public ImageSize getVariant() {
+        return variant;
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.job4j.dreamjob.dto;
+
+public enum ImageSize {
+
+    ORIGINAL("original", 0),
+    MEDIUM("medium", 640),
+    THUMB("thumb", 160);
+
+    private final String suffix;
+
+    private final int maxDimension;
+
+    ImageSize(String suffix, int maxDimension) {
+        this.suffix = suffix;
+        this.maxDimension = maxDimension;
+    }
+
+    public static ImageSize of(String suffix) {
+        for (var size : values()) {
+            if (size.suffix.equalsIgnoreCase(suffix)) {
+                return size;
+            }
+        }
+        return ORIGINAL;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+}
@@ -0,0 +1,24 @@
+package ru.job4j.dreamjob.dto;
+
+/**
+ * Ошибка в одной записи импорта; row - номер записи с единицы, без строки заголовка CSV.
+ */
+public class ImportError {
+
+    private final int row;
+
+    private final String message;
+
+    public ImportError(int row, String message) {
+        this.row = row;
+        this.message = message;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.job4j.dreamjob.dto;
+
+import java.util.List;
+
+/**
+ * Итог импорта: сколько записей сохранено, сколько отклонено и первые ошибки по записям.
+ * Ошибок в списке может быть меньше, чем failed, если их больше заданного предела.
+ */
+public class ImportReport {
+
+    private final int imported;
+
+    private final int failed;
+
+    private final List<ImportError> errors;
+
+    public ImportReport(int imported, int failed, List<ImportError> errors) {
+        this.imported = imported;
+        this.failed = failed;
+        this.errors = errors;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,83 @@
+package ru.job4j.dreamjob.dto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница списка с курсорами на соседние страницы. Отсутствующий курсор (null)
+ * означает, что в этом направлении записей больше нет.
+ */
+public class Page<T> {
+
+    private final List<T> items;
+
+    private final PageCursor next;
+
+    private final PageCursor previous;
+
+    public Page(List<T> items, PageCursor next, PageCursor previous) {
+        this.items = items;
+        this.next = next;
+        this.previous = previous;
+    }
+
+    /**
+     * Собирает страницу из строк, выбранных по курсору в порядке обхода.
+     * Ожидается, что выбрано до limit + 1 строк: лишняя строка сигнализирует о продолжении.
+     */
+    public static <T> Page<T> of(List<T> rows, PageCursor cursor, int limit, Function<T, PageCursor> keyOf) {
+        var backward = cursor != null && cursor.isBackward();
+        var hasMore = rows.size() > limit;
+        var items = new ArrayList<>(rows.subList(0, Math.min(limit, rows.size())));
+        if (backward) {
+            Collections.reverse(items);
+        }
+        if (items.isEmpty()) {
+            return new Page<>(items, null, null);
+        }
+        var first = keyOf.apply(items.get(0));
+        var last = keyOf.apply(items.get(items.size() - 1));
+        var hasNext = backward || hasMore;
+        var hasPrevious = backward ? hasMore : cursor != null;
+        return new Page<>(items,
+                hasNext ? PageCursor.after(last.getCreationDate(), last.getId()) : null,
+                hasPrevious ? PageCursor.before(first.getCreationDate(), first.getId()) : null);
+    }
+
+    /**
+     * Keyset-пагинация по коллекции в памяти с той же семантикой, что и в SQL-репозиториях.
+     */
+    public static <T> Page<T> slice(Collection<T> all, PageCursor cursor, int limit, Function<T, PageCursor> keyOf) {
+        Comparator<T> newestFirst = Comparator.comparing(keyOf, Comparator.reverseOrder());
+        var backward = cursor != null && cursor.isBackward();
+        var order = backward ? newestFirst.reversed() : newestFirst;
+        var rows = all.stream()
+                .filter(item -> cursor == null || (backward
+                        ? keyOf.apply(item).compareTo(cursor) > 0
+                        : keyOf.apply(item).compareTo(cursor) < 0))
+                .sorted(order)
+                .limit(limit + 1L)
+                .toList();
+        return of(rows, cursor, limit, keyOf);
+    }
+
+    public <R> Page<R> map(Function<T, R> mapper) {
+        return new Page<>(items.stream().map(mapper).toList(), next, previous);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public PageCursor getNext() {
+        return next;
+    }
+
+    public PageCursor getPrevious() {
+        return previous;
+    }
+}
@@ -0,0 +1,101 @@
+package ru.job4j.dreamjob.dto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+
+/**
+ * Ключ keyset-пагинации: пара (creation_date, id) и направление обхода.
+ * Списки упорядочены от новых записей к старым.
+ */
+public class PageCursor implements Comparable<PageCursor> {
+
+    private static final String SEPARATOR = "_";
+
+    private final LocalDateTime creationDate;
+
+    private final int id;
+
+    private final boolean backward;
+
+    private PageCursor(LocalDateTime creationDate, int id, boolean backward) {
+        this.creationDate = creationDate;
+        this.id = id;
+        this.backward = backward;
+    }
+
+    public static PageCursor after(LocalDateTime creationDate, int id) {
+        return new PageCursor(creationDate, id, false);
+    }
+
+    public static PageCursor before(LocalDateTime creationDate, int id) {
+        return new PageCursor(creationDate, id, true);
+    }
+
+    /**
+     * Восстанавливает курсор из параметров запроса. Пустые или испорченные значения
+     * означают первую страницу, поэтому возвращается null.
+     */
+    public static PageCursor of(String after, String before) {
+        if (after != null && !after.isBlank()) {
+            return parse(after, false);
+        }
+        if (before != null && !before.isBlank()) {
+            return parse(before, true);
+        }
+        return null;
+    }
+
+    private static PageCursor parse(String token, boolean backward) {
+        var index = token.lastIndexOf(SEPARATOR);
+        if (index <= 0) {
+            return null;
+        }
+        try {
+            var creationDate = LocalDateTime.parse(token.substring(0, index));
+            var id = Integer.parseInt(token.substring(index + 1));
+            return new PageCursor(creationDate, id, backward);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public boolean isBackward() {
+        return backward;
+    }
+
+    public String getToken() {
+        return creationDate + SEPARATOR + id;
+    }
+
+    @Override
+    public int compareTo(PageCursor other) {
+        var result = creationDate.compareTo(other.creationDate);
+        return result != 0 ? result : Integer.compare(id, other.id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PageCursor that = (PageCursor) o;
+        return id == that.id && backward == that.backward && Objects.equals(creationDate, that.creationDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(creationDate, id, backward);
+    }
+}
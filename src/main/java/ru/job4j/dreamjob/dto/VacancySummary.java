@@ -0,0 +1,77 @@
+package ru.job4j.dreamjob.dto;
+
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка списка вакансий: только поля, которые показывает список, и название города вместо его id.
+ */
+public class VacancySummary {
+
+    private final int id;
+
+    private final String title;
+
+    private final LocalDateTime creationDate;
+
+    private final boolean visible;
+
+    private final int cityId;
+
+    private final String cityName;
+
+    private final int fileId;
+
+    public VacancySummary(int id, String title, LocalDateTime creationDate, boolean visible,
+                          int cityId, String cityName, int fileId) {
+        this.id = id;
+        this.title = title;
+        this.creationDate = creationDate;
+        this.visible = visible;
+        this.cityId = cityId;
+        this.cityName = cityName;
+        this.fileId = fileId;
+    }
+
+    public static VacancySummary of(Vacancy vacancy) {
+        return new VacancySummary(vacancy.getId(), vacancy.getTitle(), vacancy.getCreationDate(), vacancy.getVisible(),
+                vacancy.getCityId(), null, vacancy.getFileId());
+    }
+
+    public VacancySummary withCityName(String cityName) {
+        return new VacancySummary(id, title, creationDate, visible, cityId, cityName, fileId);
+    }
+
+    public VacancySummary withId(int id) {
+        return new VacancySummary(id, title, creationDate, visible, cityId, cityName, fileId);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public boolean getVisible() {
+        return visible;
+    }
+
+    public int getCityId() {
+        return cityId;
+    }
+
+    public String getCityName() {
+        return cityName;
+    }
+
+    public int getFileId() {
+        return fileId;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.job4j.dreamjob.filter;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.job4j.dreamjob.datasource.UnitOfWork;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Публикует число соединений, взятых из пула за один запрос, в метрику db.connections.borrowed.
+ */
+@Component
+@Order(0)
+public class ConnectionBorrowFilter extends HttpFilter {
+
+    private final UnitOfWork unitOfWork;
+
+    private final DistributionSummary borrowed;
+
+    public ConnectionBorrowFilter(UnitOfWork unitOfWork, MeterRegistry meterRegistry) {
+        this.unitOfWork = unitOfWork;
+        this.borrowed = DistributionSummary.builder("db.connections.borrowed")
+                .description("Соединения из пула, взятые за один HTTP-запрос")
+                .baseUnit("connections")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        unitOfWork.resetBorrowCount();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            borrowed.record(unitOfWork.resetBorrowCount());
+        }
+    }
+}
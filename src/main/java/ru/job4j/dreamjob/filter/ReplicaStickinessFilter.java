@@ -0,0 +1,52 @@
+package ru.job4j.dreamjob.filter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.job4j.dreamjob.datasource.RoutingDataSource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Закрепляет сессию за основной БД на время отставания реплик после того, как она что-то записала,
+ * чтобы пользователь сразу видел свои изменения.
+ */
+@Component
+@Order(0)
+public class ReplicaStickinessFilter extends HttpFilter {
+
+    private static final String PRIMARY_UNTIL = "primaryUntil";
+
+    private final RoutingDataSource routingDataSource;
+
+    private final long stickyMillis;
+
+    public ReplicaStickinessFilter(RoutingDataSource routingDataSource,
+                                   @Value("${datasource.replica.sticky-duration}") Duration stickyDuration) {
+        this.routingDataSource = routingDataSource;
+        this.stickyMillis = stickyDuration.toMillis();
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        var session = request.getSession(false);
+        var until = session == null ? null : (Long) session.getAttribute(PRIMARY_UNTIL);
+        routingDataSource.beginSession(until != null && System.currentTimeMillis() < until);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            /* сессия к этому моменту уже создана SessionFilter или закрыта при выходе */
+            session = request.getSession(false);
+            if (routingDataSource.endSession() && session != null) {
+                session.setAttribute(PRIMARY_UNTIL, System.currentTimeMillis() + stickyMillis);
+            }
+        }
+    }
+}
@@ -10,11 +10,19 @@ public class File {
 
     private String path;
 
+    private String hash;
+
     public File(String name, String path) {
         this.name = name;
         this.path = path;
     }
 
+    public File(String name, String path, String hash) {
+        this.name = name;
+        this.path = path;
+        this.hash = hash;
+    }
+
     public int getId() {
         return id;
     }
@@ -39,6 +47,14 @@ public class File {
         this.path = path;
     }
 
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -0,0 +1,50 @@
+package ru.job4j.dreamjob.model;
+
+import java.util.Objects;
+
+/**
+ * Путь к содержимому удаленного файла, ожидающему удаления с диска.
+ */
+public class FileDeletion {
+
+    private int id;
+
+    private String path;
+
+    public FileDeletion(String path) {
+        this.path = path;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FileDeletion that = (FileDeletion) o;
+        return id == that.id && Objects.equals(path, that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, path);
+    }
+}
@@ -0,0 +1,275 @@
+package ru.job4j.dreamjob.repository;
+
+import jakarta.annotation.PreDestroy;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import ru.job4j.dreamjob.datasource.RoutingDataSource;
+import ru.job4j.dreamjob.datasource.UnitOfWork;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancySummary;
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+@Repository
+@ThreadSafe
+public class CachingVacancyRepository implements VacancyRepository {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingVacancyRepository.class);
+
+    private final VacancyRepository vacancyRepository;
+
+    private final long maxStalenessNanos;
+
+    private final UnitOfWork unitOfWork;
+
+    /* снимок меняется после коммита под той же блокировкой, что и перечитывание, поэтому оно не затирает запись */
+    private final Lock lock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    private final ExecutorService reloader = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "vacancy-cache-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CachingVacancyRepository(VacancyRepository shardedVacancyRepository, UnitOfWork unitOfWork,
+                                    @Value("${vacancy.cache.max-staleness}") Duration maxStaleness) {
+        this.vacancyRepository = shardedVacancyRepository;
+        this.unitOfWork = unitOfWork;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refresh() {
+        lock.lock();
+        try {
+            snapshot = Snapshot.of(RoutingDataSource.onPrimary(vacancyRepository::findAll));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reloader.shutdownNow();
+    }
+
+    @Override
+    public Vacancy save(Vacancy vacancy) {
+        var saved = vacancyRepository.save(vacancy);
+        var copy = copyOf(saved);
+        unitOfWork.afterCommit(() -> apply(old -> old.with(copy)));
+        return saved;
+    }
+
+    @Override
+    public Collection<Vacancy> saveAll(Collection<Vacancy> vacancies) {
+        try {
+            var saved = vacancyRepository.saveAll(vacancies);
+            afterSaveAll(saved);
+            return saved;
+        } catch (PartialSaveException e) {
+            afterSaveAll(e.getSaved());
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        var deleted = vacancyRepository.deleteById(id);
+        unitOfWork.afterCommit(() -> apply(old -> old.without(id)));
+        return deleted;
+    }
+
+    @Override
+    public Optional<Integer> deleteAndGetFileId(int id) {
+        var fileId = vacancyRepository.deleteAndGetFileId(id);
+        unitOfWork.afterCommit(() -> apply(old -> old.without(id)));
+        return fileId;
+    }
+
+    @Override
+    public boolean update(Vacancy vacancy) {
+        var updated = vacancyRepository.update(vacancy);
+        afterUpdate(vacancy, updated);
+        return updated;
+    }
+
+    @Override
+    public Optional<Integer> updateAndGetOldFileId(Vacancy vacancy) {
+        var oldFileId = vacancyRepository.updateAndGetOldFileId(vacancy);
+        afterUpdate(vacancy, oldFileId.isPresent());
+        return oldFileId;
+    }
+
+    private void afterSaveAll(Collection<Vacancy> saved) {
+        var copies = saved.stream().map(CachingVacancyRepository::copyOf).toList();
+        unitOfWork.afterCommit(() -> apply(old -> old.with(copies)));
+    }
+
+    /* строка могла быть удалена другим узлом, поэтому при неудаче запись убирается и из снимка */
+    private void afterUpdate(Vacancy vacancy, boolean updated) {
+        var copy = copyOf(vacancy);
+        unitOfWork.afterCommit(() -> apply(old -> updated ? old.with(copy) : old.without(copy.getId())));
+    }
+
+    private void apply(UnaryOperator<Snapshot> change) {
+        lock.lock();
+        try {
+            snapshot = change.apply(current());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Vacancy> findById(int id) {
+        return Optional.ofNullable(current().byId.get(id));
+    }
+
+    @Override
+    public Collection<Vacancy> findAll() {
+        return Collections.unmodifiableCollection(current().byId.values());
+    }
+
+    @Override
+    public void forEach(Consumer<? super Vacancy> action) {
+        vacancyRepository.forEach(action);
+    }
+
+    @Override
+    public Page<VacancySummary> findSummaryPage(PageCursor cursor, int limit) {
+        var byKey = current().byKey;
+        NavigableMap<PageCursor, Vacancy> range;
+        if (cursor == null) {
+            range = byKey.descendingMap();
+        } else if (cursor.isBackward()) {
+            range = byKey.tailMap(cursor, false);
+        } else {
+            range = byKey.headMap(cursor, false).descendingMap();
+        }
+        var rows = range.values().stream().limit(limit + 1L).map(VacancySummary::of).toList();
+        return Page.of(rows, cursor, limit, summary -> PageCursor.after(summary.getCreationDate(), summary.getId()));
+    }
+
+    private Snapshot current() {
+        var current = snapshot;
+        if (current == null) {
+            lock.lock();
+            try {
+                if (snapshot == null) {
+                    snapshot = Snapshot.of(RoutingDataSource.onPrimary(vacancyRepository::findAll));
+                }
+                return snapshot;
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (System.nanoTime() - current.loadedAt > maxStalenessNanos && reloading.compareAndSet(false, true)) {
+            reloadInBackground();
+        }
+        return current;
+    }
+
+    private void reloadInBackground() {
+        try {
+            reloader.execute(() -> {
+                try {
+                    refresh();
+                } catch (RuntimeException e) {
+                    LOG.warn("Не удалось перечитать вакансии, читатели получают прежний снимок", e);
+                } finally {
+                    reloading.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            reloading.set(false);
+        }
+    }
+
+    private static PageCursor keyOf(Vacancy vacancy) {
+        return PageCursor.after(vacancy.getCreationDate(), vacancy.getId());
+    }
+
+    private static Vacancy copyOf(Vacancy vacancy) {
+        return new Vacancy(vacancy.getId(), vacancy.getTitle(), vacancy.getDescription(), vacancy.getCreationDate(),
+                vacancy.getVisible(), vacancy.getCityId(), vacancy.getFileId());
+    }
+
+    private static final class Snapshot {
+
+        private final NavigableMap<Integer, Vacancy> byId;
+
+        private final NavigableMap<PageCursor, Vacancy> byKey;
+
+        private final long loadedAt;
+
+        private Snapshot(NavigableMap<Integer, Vacancy> byId, NavigableMap<PageCursor, Vacancy> byKey, long loadedAt) {
+            this.byId = byId;
+            this.byKey = byKey;
+            this.loadedAt = loadedAt;
+        }
+
+        static Snapshot of(Collection<Vacancy> vacancies) {
+            var byId = new TreeMap<Integer, Vacancy>();
+            for (var vacancy : vacancies) {
+                byId.put(vacancy.getId(), vacancy);
+            }
+            return of(byId, System.nanoTime());
+        }
+
+        private static Snapshot of(TreeMap<Integer, Vacancy> byId, long loadedAt) {
+            var byKey = new TreeMap<PageCursor, Vacancy>();
+            for (var vacancy : byId.values()) {
+                byKey.put(keyOf(vacancy), vacancy);
+            }
+            return new Snapshot(Collections.unmodifiableNavigableMap(byId),
+                    Collections.unmodifiableNavigableMap(byKey), loadedAt);
+        }
+
+        Snapshot with(Vacancy vacancy) {
+            return with(List.of(vacancy));
+        }
+
+        Snapshot with(Collection<Vacancy> vacancies) {
+            var copy = new TreeMap<>(byId);
+            for (var vacancy : vacancies) {
+                copy.put(vacancy.getId(), vacancy);
+            }
+            return of(copy, loadedAt);
+        }
+
+        Snapshot without(int id) {
+            if (!byId.containsKey(id)) {
+                return this;
+            }
+            var copy = new TreeMap<>(byId);
+            copy.remove(id);
+            return of(copy, loadedAt);
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package ru.job4j.dreamjob.repository;
 
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.CandidateSummary;
 import ru.job4j.dreamjob.model.Candidate;
 
 import java.util.Collection;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface CandidateRepository {
 
@@ -11,9 +15,20 @@ public interface CandidateRepository {
 
     boolean deleteById(int id);
 
+    /* удаляет запись и возвращает ее file_id, пусто, если записи не было */
+    Optional<Integer> deleteAndGetFileId(int id);
+
     boolean update(Candidate candidate);
 
+    /* обновляет запись и возвращает file_id, который был у нее до обновления, пусто, если записи нет */
+    Optional<Integer> updateAndGetOldFileId(Candidate candidate);
+
     Optional<Candidate> findById(int id);
 
     Collection<Candidate> findAll();
+
+    /* передает все записи обработчику по одной, не собирая их в память */
+    void forEach(Consumer<? super Candidate> action);
+
+    Page<CandidateSummary> findSummaryPage(PageCursor cursor, int limit);
 }
\ No newline at end of file
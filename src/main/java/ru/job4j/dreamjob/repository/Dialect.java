@@ -0,0 +1,87 @@
+package ru.job4j.dreamjob.repository;
+
+import org.sql2o.Sql2o;
+import org.sql2o.Sql2oException;
+
+import java.sql.SQLException;
+
+/**
+ * Запросы, которые возвращают строки, затронутые изменением. В PostgreSQL это RETURNING,
+ * в H2 тестов RETURNING нет, и те же значения читаются из дельта-таблиц OLD TABLE (...) и FINAL TABLE (...).
+ * Оба варианта выполняются одной командой.
+ */
+enum Dialect {
+
+    POSTGRESQL {
+        @Override
+        String deleteReturning(String delete, String columns) {
+            return delete + " RETURNING " + columns;
+        }
+
+        @Override
+        String updateReturning(String update, String columns) {
+            return update + " RETURNING " + columns;
+        }
+
+        @Override
+        String insertDeleted(String insert, String delete, String columns) {
+            return "WITH deleted AS (%s RETURNING %s) %s SELECT %s FROM deleted"
+                    .formatted(delete, columns, insert, columns);
+        }
+
+        /* RETURNING отдает новые значения, поэтому старые берутся из заблокированной копии строки */
+        @Override
+        String updateReturningOld(String table, String assignments, String column) {
+            return """
+                    UPDATE %1$s SET %2$s
+                    FROM (SELECT id, %3$s FROM %1$s WHERE id = :id FOR UPDATE) previous
+                    WHERE %1$s.id = previous.id
+                    RETURNING previous.%3$s
+                    """.formatted(table, assignments, column);
+        }
+    },
+
+    H2 {
+        @Override
+        String deleteReturning(String delete, String columns) {
+            return "SELECT %s FROM OLD TABLE (%s)".formatted(columns, delete);
+        }
+
+        @Override
+        String updateReturning(String update, String columns) {
+            return "SELECT %s FROM FINAL TABLE (%s)".formatted(columns, update);
+        }
+
+        @Override
+        String insertDeleted(String insert, String delete, String columns) {
+            return "%s SELECT %s FROM OLD TABLE (%s)".formatted(insert, columns, delete);
+        }
+
+        @Override
+        String updateReturningOld(String table, String assignments, String column) {
+            return "SELECT %3$s FROM OLD TABLE (UPDATE %1$s SET %2$s WHERE id = :id)"
+                    .formatted(table, assignments, column);
+        }
+    };
+
+    /* колонки удаленных строк */
+    abstract String deleteReturning(String delete, String columns);
+
+    /* колонки обновленных строк со значениями после обновления */
+    abstract String updateReturning(String update, String columns);
+
+    /* удаление, колонки удаленных строк которого сразу вставляются командой insert */
+    abstract String insertDeleted(String insert, String delete, String columns);
+
+    /* обновление строки с параметром :id, возвращающее значение column до обновления */
+    abstract String updateReturningOld(String table, String assignments, String column);
+
+    static Dialect of(Sql2o sql2o) {
+        try (var connection = sql2o.open()) {
+            var product = connection.getJdbcConnection().getMetaData().getDatabaseProductName();
+            return "H2".equals(product) ? H2 : POSTGRESQL;
+        } catch (SQLException e) {
+            throw new Sql2oException("Не удалось определить СУБД", e);
+        }
+    }
+}
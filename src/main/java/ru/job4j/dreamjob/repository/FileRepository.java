@@ -1,8 +1,12 @@
 package ru.job4j.dreamjob.repository;
 
 import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.FileDeletion;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 
 public interface FileRepository {
 
@@ -10,5 +14,39 @@ public interface FileRepository {
 
     Optional<File> findById(int id);
 
+    Optional<File> findByHash(String hash);
+
+    /* следующая порция записей в порядке id, для обхода всей таблицы без OFFSET */
+    Collection<File> findAfter(int id, int limit);
+
+    boolean existsByPath(String path);
+
+    /* какие из переданных путей принадлежат записям таблицы files */
+    Set<String> findExistingPaths(Collection<String> paths);
+
+    boolean updatePath(int id, String path);
+
+    boolean addReference(int id);
+
+    /**
+     * Снимает одну ссылку на файл и удаляет запись, если ссылок не осталось.
+     * Путь удаленной записи той же командой ставится в очередь на удаление с диска.
+     * Возвращает true, если запись удалена и содержимое больше никому не нужно.
+     */
+    boolean removeReference(int id);
+
+    /**
+     * Удаляет записи с id в диапазоне (fromId, toId], у которых не осталось ссылок по счетчику ref_count,
+     * нет ссылок из вакансий и кандидатов основной базы и которые не использовались с момента before, и ставит их пути в очередь на удаление с диска.
+     */
+    int deleteUnreferenced(int fromId, int toId, LocalDateTime before);
+
+    void addDeletions(Collection<String> paths);
+
+    /* следующая порция очереди удаления в порядке id, начиная после afterId */
+    Collection<FileDeletion> findDeletions(int afterId, int limit);
+
+    void removeDeletions(Collection<Integer> ids);
+
     void deleteById(int id);
 }
@@ -0,0 +1,43 @@
+package ru.job4j.dreamjob.repository;
+
+import org.sql2o.ResultSetHandler;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.datasource.RoutingDataSource;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Обход всей таблицы страницами по PAGE_SIZE строк в порядке id: каждая страница читается отдельным
+ * коротким запросом WHERE id > последний id, соединение сразу возвращается в пул, и только потом строки
+ * передаются обработчику. Медленный получатель выгрузки не держит соединение и транзакцию, поэтому
+ * пул не закрывает его как утекшее. Обход не видит одного снимка таблицы: строки, добавленные
+ * за уже пройденной позицией, в него попадут, а удаленные впереди - нет.
+ */
+final class KeysetScan {
+
+    static final int PAGE_SIZE = 500;
+
+    private KeysetScan() {
+    }
+
+    /* запрос выбирает строки с id > :id в порядке id и не больше :limit */
+    static <T> void forEach(Sql2o sql2o, String sql, ResultSetHandler<T> mapper, ToIntFunction<T> id,
+                            Consumer<? super T> action) {
+        var lastId = 0;
+        List<T> page;
+        do {
+            try (var connection = RoutingDataSource.readOnly(sql2o::open)) {
+                page = connection.createQuery(sql)
+                        .addParameter("id", lastId)
+                        .addParameter("limit", PAGE_SIZE)
+                        .executeAndFetch(mapper);
+            }
+            for (var row : page) {
+                action.accept(row);
+                lastId = id.applyAsInt(row);
+            }
+        } while (page.size() == PAGE_SIZE);
+    }
+}
@@ -2,6 +2,9 @@ package ru.job4j.dreamjob.repository;
 
 import net.jcip.annotations.ThreadSafe;
 import org.springframework.stereotype.Repository;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.CandidateSummary;
 import ru.job4j.dreamjob.model.Candidate;
 
 import java.time.LocalDateTime;
@@ -10,6 +13,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 @Repository
 @ThreadSafe
@@ -58,17 +63,30 @@ public class MemoryCandidateRepository implements CandidateRepository {
         return candidates.remove(id, candidates.get(id));
     }
 
+    @Override
+    public Optional<Integer> deleteAndGetFileId(int id) {
+        return Optional.ofNullable(candidates.remove(id)).map(Candidate::getFileId);
+    }
+
     @Override
     public boolean update(Candidate candidate) {
-        return candidates.computeIfPresent(candidate.getId(),
-                (id, oldCandidate) -> new Candidate(
-                        oldCandidate.getId(),
-                        candidate.getName(),
-                        candidate.getDescription(),
-                        candidate.getCreationDate(),
-                        candidate.getCityId(),
-                        candidate.getFileId())
-        ) != null;
+        return updateAndGetOldFileId(candidate).isPresent();
+    }
+
+    @Override
+    public Optional<Integer> updateAndGetOldFileId(Candidate candidate) {
+        var oldFileId = new AtomicReference<Integer>();
+        candidates.computeIfPresent(candidate.getId(), (id, oldCandidate) -> {
+            oldFileId.set(oldCandidate.getFileId());
+            return new Candidate(
+                    oldCandidate.getId(),
+                    candidate.getName(),
+                    candidate.getDescription(),
+                    candidate.getCreationDate(),
+                    candidate.getCityId(),
+                    candidate.getFileId());
+        });
+        return Optional.ofNullable(oldFileId.get());
     }
 
     @Override
@@ -80,4 +98,15 @@ public class MemoryCandidateRepository implements CandidateRepository {
     public Collection<Candidate> findAll() {
         return candidates.values();
     }
+
+    @Override
+    public void forEach(Consumer<? super Candidate> action) {
+        candidates.values().forEach(action);
+    }
+
+    @Override
+    public Page<CandidateSummary> findSummaryPage(PageCursor cursor, int limit) {
+        return Page.slice(candidates.values(), cursor, limit,
+                candidate -> PageCursor.after(candidate.getCreationDate(), candidate.getId())).map(CandidateSummary::of);
+    }
 }
@@ -5,24 +5,21 @@ import org.springframework.stereotype.Repository;
 import ru.job4j.dreamjob.model.City;
 
 import java.util.Collection;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
 
 @Repository
 @ThreadSafe
 public class MemoryCityRepository implements CityRepository {
 
-    private final Map<Integer, City> cities = new ConcurrentHashMap<>() {
-        {
-            put(1, new City(1, "Москва"));
-            put(2, new City(2, "Санкт-Петербург"));
-            put(3, new City(3, "Екатеринбург"));
-        }
-    };
+    private final List<City> cities = List.of(
+            new City(1, "Москва"),
+            new City(2, "Санкт-Петербург"),
+            new City(3, "Екатеринбург")
+    );
 
     @Override
     public Collection<City> findAll() {
-        return cities.values();
+        return cities;
     }
 
 }
@@ -3,11 +3,19 @@ package ru.job4j.dreamjob.repository;
 import net.jcip.annotations.ThreadSafe;
 import org.springframework.stereotype.Repository;
 import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.FileDeletion;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @Repository
 @ThreadSafe
@@ -17,10 +25,17 @@ public class MemoryFileRepository implements FileRepository {
 
     private final Map<Integer, File> files = new ConcurrentHashMap<>();
 
+    private final Map<Integer, Integer> references = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextDeletionId = new AtomicInteger(0);
+
+    private final Map<Integer, FileDeletion> deletions = new ConcurrentHashMap<>();
+
     @Override
     public File save(File file) {
         file.setId(nextId.incrementAndGet());
         files.put(file.getId(), file);
+        references.put(file.getId(), 1);
         return file;
     }
 
@@ -29,8 +44,94 @@ public class MemoryFileRepository implements FileRepository {
         return Optional.ofNullable(files.get(id));
     }
 
+    @Override
+    public Optional<File> findByHash(String hash) {
+        return files.values().stream()
+                .filter(file -> Objects.equals(file.getHash(), hash))
+                .findFirst();
+    }
+
+    @Override
+    public Collection<File> findAfter(int id, int limit) {
+        return files.values().stream()
+                .filter(file -> file.getId() > id)
+                .sorted(Comparator.comparingInt(File::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public boolean existsByPath(String path) {
+        return files.values().stream().anyMatch(file -> file.getPath().equals(path));
+    }
+
+    @Override
+    public Set<String> findExistingPaths(Collection<String> paths) {
+        return files.values().stream()
+                .map(File::getPath)
+                .filter(paths::contains)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public boolean updatePath(int id, String path) {
+        return files.computeIfPresent(id, (key, file) -> {
+            file.setPath(path);
+            return file;
+        }) != null;
+    }
+
+    @Override
+    public boolean addReference(int id) {
+        return references.computeIfPresent(id, (key, count) -> count + 1) != null;
+    }
+
+    @Override
+    public boolean removeReference(int id) {
+        var remaining = references.computeIfPresent(id, (key, count) -> count > 1 ? count - 1 : null);
+        if (remaining != null) {
+            return false;
+        }
+        var file = files.remove(id);
+        if (file == null) {
+            return false;
+        }
+        addDeletions(List.of(file.getPath()));
+        return true;
+    }
+
+    /* вакансии и кандидаты в памяти не связаны с этим хранилищем, поэтому ссылки на файлы проверить нельзя */
+    @Override
+    public int deleteUnreferenced(int fromId, int toId, LocalDateTime before) {
+        return 0;
+    }
+
+    @Override
+    public void addDeletions(Collection<String> paths) {
+        for (var path : paths) {
+            var deletion = new FileDeletion(path);
+            deletion.setId(nextDeletionId.incrementAndGet());
+            deletions.put(deletion.getId(), deletion);
+        }
+    }
+
+    @Override
+    public Collection<FileDeletion> findDeletions(int afterId, int limit) {
+        return deletions.values().stream()
+                .filter(deletion -> deletion.getId() > afterId)
+                .sorted(Comparator.comparingInt(FileDeletion::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void removeDeletions(Collection<Integer> ids) {
+        ids.forEach(deletions::remove);
+    }
+
     @Override
     public void deleteById(int id) {
         files.remove(id);
+        references.remove(id);
     }
 }
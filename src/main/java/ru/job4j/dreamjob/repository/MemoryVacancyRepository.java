@@ -2,6 +2,9 @@ package ru.job4j.dreamjob.repository;
 
 import net.jcip.annotations.ThreadSafe;
 import org.springframework.stereotype.Repository;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancySummary;
 import ru.job4j.dreamjob.model.Vacancy;
 
 import java.time.LocalDateTime;
@@ -10,6 +13,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 @Repository
 @ThreadSafe
@@ -53,23 +58,42 @@ public class MemoryVacancyRepository implements VacancyRepository {
         return vacancy;
     }
 
+    @Override
+    public Collection<Vacancy> saveAll(Collection<Vacancy> vacancies) {
+        vacancies.forEach(this::save);
+        return vacancies;
+    }
+
     @Override
     public boolean deleteById(int id) {
         return vacancies.remove(id, vacancies.get(id));
     }
 
+    @Override
+    public Optional<Integer> deleteAndGetFileId(int id) {
+        return Optional.ofNullable(vacancies.remove(id)).map(Vacancy::getFileId);
+    }
+
     @Override
     public boolean update(Vacancy vacancy) {
-        return vacancies.computeIfPresent(
-                vacancy.getId(), (id, oldVacancy) -> new Vacancy(
-                        oldVacancy.getId(),
-                        vacancy.getTitle(),
-                        vacancy.getDescription(),
-                        vacancy.getCreationDate(),
-                        vacancy.getVisible(),
-                        vacancy.getCityId(),
-                        vacancy.getFileId())
-        ) != null;
+        return updateAndGetOldFileId(vacancy).isPresent();
+    }
+
+    @Override
+    public Optional<Integer> updateAndGetOldFileId(Vacancy vacancy) {
+        var oldFileId = new AtomicReference<Integer>();
+        vacancies.computeIfPresent(vacancy.getId(), (id, oldVacancy) -> {
+            oldFileId.set(oldVacancy.getFileId());
+            return new Vacancy(
+                    oldVacancy.getId(),
+                    vacancy.getTitle(),
+                    vacancy.getDescription(),
+                    vacancy.getCreationDate(),
+                    vacancy.getVisible(),
+                    vacancy.getCityId(),
+                    vacancy.getFileId());
+        });
+        return Optional.ofNullable(oldFileId.get());
     }
 
     @Override
@@ -81,4 +105,15 @@ public class MemoryVacancyRepository implements VacancyRepository {
     public Collection<Vacancy> findAll() {
         return vacancies.values();
     }
+
+    @Override
+    public void forEach(Consumer<? super Vacancy> action) {
+        vacancies.values().forEach(action);
+    }
+
+    @Override
+    public Page<VacancySummary> findSummaryPage(PageCursor cursor, int limit) {
+        return Page.slice(vacancies.values(), cursor, limit,
+                vacancy -> PageCursor.after(vacancy.getCreationDate(), vacancy.getId())).map(VacancySummary::of);
+    }
 }
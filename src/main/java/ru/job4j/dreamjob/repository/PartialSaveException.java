@@ -0,0 +1,31 @@
+package ru.job4j.dreamjob.repository;
+
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.util.List;
+
+/**
+ * Пачка сохранилась не целиком: части, которые шли в разные шарды, фиксируются независимо.
+ * Исключение перечисляет уже зафиксированные вакансии и те, что не сохранились, причина - ошибка
+ * первого упавшего шарда, ошибки остальных приложены как подавленные.
+ */
+public class PartialSaveException extends RuntimeException {
+
+    private final List<Vacancy> saved;
+
+    private final List<Vacancy> failed;
+
+    public PartialSaveException(List<Vacancy> saved, List<Vacancy> failed, RuntimeException cause) {
+        super("Сохранено вакансий: %d, не сохранено: %d".formatted(saved.size(), failed.size()), cause);
+        this.saved = List.copyOf(saved);
+        this.failed = List.copyOf(failed);
+    }
+
+    public List<Vacancy> getSaved() {
+        return saved;
+    }
+
+    public List<Vacancy> getFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,82 @@
+package ru.job4j.dreamjob.repository;
+
+import org.sql2o.Query;
+import org.sql2o.ResultSetHandler;
+import ru.job4j.dreamjob.dto.CandidateSummary;
+import ru.job4j.dreamjob.dto.VacancySummary;
+import ru.job4j.dreamjob.model.Candidate;
+import ru.job4j.dreamjob.model.City;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.FileDeletion;
+import ru.job4j.dreamjob.model.User;
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Мапперы строк результата в сущности. Колонки читаются по номеру, поэтому запрос обязан выбирать
+ * их ровно в порядке соответствующего списка *_COLUMNS. Даты читаются через getObject(LocalDateTime.class)
+ * из JDBC 4.2 без промежуточного Timestamp и без рефлексии Sql2o.
+ */
+public final class RowMappers {
+
+    public static final String VACANCY_COLUMNS = "id, title, description, creation_date, visible, city_id, file_id";
+
+    public static final ResultSetHandler<Vacancy> VACANCY = resultSet -> new Vacancy(
+            resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3),
+            resultSet.getObject(4, LocalDateTime.class), resultSet.getBoolean(5),
+            resultSet.getInt(6), resultSet.getInt(7));
+
+    public static final String VACANCY_SUMMARY_COLUMNS = "id, title, creation_date, visible, city_id, file_id";
+
+    public static final ResultSetHandler<VacancySummary> VACANCY_SUMMARY = resultSet -> new VacancySummary(
+            resultSet.getInt(1), resultSet.getString(2), resultSet.getObject(3, LocalDateTime.class),
+            resultSet.getBoolean(4), resultSet.getInt(5), null, resultSet.getInt(6));
+
+    public static final String CANDIDATE_COLUMNS = "id, name, description, creation_date, city_id, file_id";
+
+    public static final ResultSetHandler<Candidate> CANDIDATE = resultSet -> new Candidate(
+            resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3),
+            resultSet.getObject(4, LocalDateTime.class), resultSet.getInt(5), resultSet.getInt(6));
+
+    public static final String CANDIDATE_SUMMARY_COLUMNS = "id, name, creation_date, city_id, file_id";
+
+    public static final ResultSetHandler<CandidateSummary> CANDIDATE_SUMMARY = resultSet -> new CandidateSummary(
+            resultSet.getInt(1), resultSet.getString(2), resultSet.getObject(3, LocalDateTime.class),
+            resultSet.getInt(4), null, resultSet.getInt(5));
+
+    public static final String CITY_COLUMNS = "id, name";
+
+    public static final ResultSetHandler<City> CITY = resultSet -> new City(resultSet.getInt(1), resultSet.getString(2));
+
+    public static final String FILE_COLUMNS = "id, name, path, hash";
+
+    public static final ResultSetHandler<File> FILE = resultSet -> {
+        var file = new File(resultSet.getString(2), resultSet.getString(3), resultSet.getString(4));
+        file.setId(resultSet.getInt(1));
+        return file;
+    };
+
+    public static final String FILE_DELETION_COLUMNS = "id, path";
+
+    public static final ResultSetHandler<FileDeletion> FILE_DELETION = resultSet -> {
+        var deletion = new FileDeletion(resultSet.getString(2));
+        deletion.setId(resultSet.getInt(1));
+        return deletion;
+    };
+
+    public static final String USER_COLUMNS = "id, email, name, password";
+
+    public static final ResultSetHandler<User> USER = resultSet -> new User(
+            resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3), resultSet.getString(4));
+
+    /* пустой file_id отличается от отсутствия строки: запись была, но без изображения, и тогда возвращается 0 */
+    static Optional<Integer> firstFileId(Query query) {
+        var fileIds = query.executeScalarList(Integer.class);
+        return fileIds.isEmpty() ? Optional.empty() : Optional.of(fileIds.get(0) == null ? 0 : fileIds.get(0));
+    }
+
+    private RowMappers() {
+    }
+}
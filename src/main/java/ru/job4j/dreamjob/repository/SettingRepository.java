@@ -0,0 +1,14 @@
+package ru.job4j.dreamjob.repository;
+
+import java.util.Optional;
+
+/**
+ * Параметры, которые приложение записывает в основную БД один раз и сверяет при следующих запусках.
+ */
+public interface SettingRepository {
+
+    Optional<String> findByName(String name);
+
+    /* записывает значение, только если параметра еще нет, и возвращает то, что хранится в итоге */
+    String saveIfAbsent(String name, String value);
+}
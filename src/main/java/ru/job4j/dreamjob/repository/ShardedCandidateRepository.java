@@ -0,0 +1,122 @@
+package ru.job4j.dreamjob.repository;
+
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.stereotype.Repository;
+import ru.job4j.dreamjob.datasource.Shards;
+import ru.job4j.dreamjob.dto.CandidateSummary;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.model.Candidate;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Кандидаты, разложенные по шардам {@link Shards} так же, как вакансии в {@link ShardedVacancyRepository}.
+ */
+@Repository
+@ThreadSafe
+public class ShardedCandidateRepository implements CandidateRepository {
+
+    private static final Comparator<Candidate> NEWEST_FIRST = Comparator.comparing(Candidate::getCreationDate)
+            .thenComparingInt(Candidate::getId)
+            .reversed();
+
+    private final Shards shards;
+
+    private final List<CandidateRepository> repositories;
+
+    public ShardedCandidateRepository(Shards shards) {
+        this.shards = shards;
+        this.repositories = IntStream.range(0, shards.count())
+                .mapToObj(shard -> (CandidateRepository) new Sql2oCandidateRepository(shards.client(shard)))
+                .toList();
+    }
+
+    @Override
+    public Candidate save(Candidate candidate) {
+        var shard = shards.ofCity(candidate.getCityId());
+        var saved = repositories.get(shard).save(candidate);
+        saved.setId(shards.globalId(saved.getId(), shard));
+        return saved;
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        return repositoryOf(id).deleteById(shards.localId(id));
+    }
+
+    @Override
+    public Optional<Integer> deleteAndGetFileId(int id) {
+        return repositoryOf(id).deleteAndGetFileId(shards.localId(id));
+    }
+
+    @Override
+    public boolean update(Candidate candidate) {
+        return repositoryOf(candidate.getId()).update(local(candidate));
+    }
+
+    @Override
+    public Optional<Integer> updateAndGetOldFileId(Candidate candidate) {
+        return repositoryOf(candidate.getId()).updateAndGetOldFileId(local(candidate));
+    }
+
+    @Override
+    public Optional<Candidate> findById(int id) {
+        var shard = shards.ofId(id);
+        return repositories.get(shard).findById(shards.localId(id)).map(candidate -> global(candidate, shard));
+    }
+
+    @Override
+    public Collection<Candidate> findAll() {
+        return shards.gather(shard -> repositories.get(shard).findAll().stream()
+                        .map(candidate -> global(candidate, shard))
+                        .toList())
+                .stream()
+                .flatMap(Collection::stream)
+                .sorted(NEWEST_FIRST)
+                .toList();
+    }
+
+    /* шарды обходятся по очереди, без слияния по дате, чтобы в памяти не копились строки других шардов */
+    @Override
+    public void forEach(Consumer<? super Candidate> action) {
+        for (int shard = 0; shard < shards.count(); shard++) {
+            var number = shard;
+            repositories.get(shard).forEach(candidate -> action.accept(global(candidate, number)));
+        }
+    }
+
+    @Override
+    public Page<CandidateSummary> findSummaryPage(PageCursor cursor, int limit) {
+        if (shards.count() == 1) {
+            return repositories.get(0).findSummaryPage(cursor, limit);
+        }
+        var rows = shards.gather(shard -> repositories.get(shard)
+                        .findSummaryPage(shards.localCursor(cursor, shard), limit + 1).getItems().stream()
+                        .map(summary -> summary.withId(shards.globalId(summary.getId(), shard)))
+                        .toList())
+                .stream()
+                .flatMap(Collection::stream)
+                .toList();
+        return Page.slice(rows, cursor, limit, summary -> PageCursor.after(summary.getCreationDate(), summary.getId()));
+    }
+
+    private CandidateRepository repositoryOf(int id) {
+        return repositories.get(shards.ofId(id));
+    }
+
+    private Candidate local(Candidate candidate) {
+        return new Candidate(shards.localId(candidate.getId()), candidate.getName(), candidate.getDescription(),
+                candidate.getCreationDate(), candidate.getCityId(), candidate.getFileId());
+    }
+
+    private Candidate global(Candidate candidate, int shard) {
+        candidate.setId(shards.globalId(candidate.getId(), shard));
+        return candidate;
+    }
+}
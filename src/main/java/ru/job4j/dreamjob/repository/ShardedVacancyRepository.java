@@ -0,0 +1,174 @@
+package ru.job4j.dreamjob.repository;
+
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.stereotype.Repository;
+import ru.job4j.dreamjob.datasource.Shards;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancySummary;
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Вакансии, разложенные по шардам {@link Shards}: запись идет в шард города, чтение по id - в шард из id,
+ * а списки собираются со всех шардов параллельно и сливаются по дате создания.
+ */
+@Repository
+@ThreadSafe
+public class ShardedVacancyRepository implements VacancyRepository {
+
+    private static final Comparator<Vacancy> NEWEST_FIRST = Comparator.comparing(Vacancy::getCreationDate)
+            .thenComparingInt(Vacancy::getId)
+            .reversed();
+
+    private final Shards shards;
+
+    private final List<VacancyRepository> repositories;
+
+    public ShardedVacancyRepository(Shards shards) {
+        this.shards = shards;
+        this.repositories = IntStream.range(0, shards.count())
+                .mapToObj(shard -> (VacancyRepository) new Sql2oVacancyRepository(shards.client(shard)))
+                .toList();
+    }
+
+    @Override
+    public Vacancy save(Vacancy vacancy) {
+        var shard = shards.ofCity(vacancy.getCityId());
+        var saved = repositories.get(shard).save(vacancy);
+        saved.setId(shards.globalId(saved.getId(), shard));
+        return saved;
+    }
+
+    /*
+     * пачка делится по шардам городов, и каждая часть сохраняется в своем шарде одним пакетом в своей транзакции.
+     * Упавший шард не отменяет уже зафиксированные части других шардов, поэтому о нем сообщает PartialSaveException
+     */
+    @Override
+    public Collection<Vacancy> saveAll(Collection<Vacancy> vacancies) {
+        var byShard = new ArrayList<List<Vacancy>>(shards.count());
+        for (int shard = 0; shard < shards.count(); shard++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (var vacancy : vacancies) {
+            byShard.get(shards.ofCity(vacancy.getCityId())).add(vacancy);
+        }
+        var failures = shards.gather(shard -> saveSlice(shard, byShard.get(shard)));
+        var saved = new ArrayList<Vacancy>();
+        var failed = new ArrayList<Vacancy>();
+        RuntimeException failure = null;
+        for (int shard = 0; shard < shards.count(); shard++) {
+            var error = failures.get(shard);
+            if (error.isEmpty()) {
+                saved.addAll(byShard.get(shard));
+                continue;
+            }
+            failed.addAll(byShard.get(shard));
+            if (failure == null) {
+                failure = error.get();
+            } else {
+                failure.addSuppressed(error.get());
+            }
+        }
+        if (failure == null) {
+            return vacancies;
+        }
+        if (saved.isEmpty()) {
+            throw failure;
+        }
+        throw new PartialSaveException(saved, failed, failure);
+    }
+
+    private Optional<RuntimeException> saveSlice(int shard, List<Vacancy> slice) {
+        try {
+            repositories.get(shard).saveAll(slice).forEach(vacancy -> global(vacancy, shard));
+            return Optional.empty();
+        } catch (RuntimeException e) {
+            slice.forEach(vacancy -> vacancy.setId(0));
+            return Optional.of(e);
+        }
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        return repositoryOf(id).deleteById(shards.localId(id));
+    }
+
+    @Override
+    public Optional<Integer> deleteAndGetFileId(int id) {
+        return repositoryOf(id).deleteAndGetFileId(shards.localId(id));
+    }
+
+    @Override
+    public boolean update(Vacancy vacancy) {
+        return repositoryOf(vacancy.getId()).update(local(vacancy));
+    }
+
+    @Override
+    public Optional<Integer> updateAndGetOldFileId(Vacancy vacancy) {
+        return repositoryOf(vacancy.getId()).updateAndGetOldFileId(local(vacancy));
+    }
+
+    @Override
+    public Optional<Vacancy> findById(int id) {
+        var shard = shards.ofId(id);
+        return repositories.get(shard).findById(shards.localId(id)).map(vacancy -> global(vacancy, shard));
+    }
+
+    @Override
+    public Collection<Vacancy> findAll() {
+        return shards.gather(shard -> repositories.get(shard).findAll().stream()
+                        .map(vacancy -> global(vacancy, shard))
+                        .toList())
+                .stream()
+                .flatMap(Collection::stream)
+                .sorted(NEWEST_FIRST)
+                .toList();
+    }
+
+    /* шарды обходятся по очереди, без слияния по дате, чтобы в памяти не копились строки других шардов */
+    @Override
+    public void forEach(Consumer<? super Vacancy> action) {
+        for (int shard = 0; shard < shards.count(); shard++) {
+            var number = shard;
+            repositories.get(shard).forEach(vacancy -> action.accept(global(vacancy, number)));
+        }
+    }
+
+    /* каждый шард отдает на строку больше страницы, чтобы по слиянию было видно, есть ли продолжение */
+    @Override
+    public Page<VacancySummary> findSummaryPage(PageCursor cursor, int limit) {
+        if (shards.count() == 1) {
+            return repositories.get(0).findSummaryPage(cursor, limit);
+        }
+        var rows = shards.gather(shard -> repositories.get(shard)
+                        .findSummaryPage(shards.localCursor(cursor, shard), limit + 1).getItems().stream()
+                        .map(summary -> summary.withId(shards.globalId(summary.getId(), shard)))
+                        .toList())
+                .stream()
+                .flatMap(Collection::stream)
+                .toList();
+        return Page.slice(rows, cursor, limit, summary -> PageCursor.after(summary.getCreationDate(), summary.getId()));
+    }
+
+    private VacancyRepository repositoryOf(int id) {
+        return repositories.get(shards.ofId(id));
+    }
+
+    private Vacancy local(Vacancy vacancy) {
+        return new Vacancy(shards.localId(vacancy.getId()), vacancy.getTitle(), vacancy.getDescription(),
+                vacancy.getCreationDate(), vacancy.getVisible(), vacancy.getCityId(), vacancy.getFileId());
+    }
+
+    private Vacancy global(Vacancy vacancy, int shard) {
+        vacancy.setId(shards.globalId(vacancy.getId(), shard));
+        return vacancy;
+    }
+}
@@ -1,19 +1,37 @@
 package ru.job4j.dreamjob.repository;
 
-import org.springframework.stereotype.Repository;
+import org.sql2o.Query;
 import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.datasource.RoutingDataSource;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.CandidateSummary;
 import ru.job4j.dreamjob.model.Candidate;
 
 import java.util.Collection;
 import java.util.Optional;
+import java.util.function.Consumer;
 
-@Repository
+/**
+ * Кандидаты в одной БД. В приложении по экземпляру на шард создает {@link ShardedCandidateRepository}.
+ */
 public class Sql2oCandidateRepository implements CandidateRepository {
 
+    private static final String ASSIGNMENTS = """
+            name = :name, description = :description, creation_date = :creationDate,
+            city_id = :cityId, file_id = :fileId""";
+
     private final Sql2o sql2o;
 
+    private final String deleteReturningFileId;
+
+    private final String updateReturningOldFileId;
+
     public Sql2oCandidateRepository(Sql2o sql2o) {
         this.sql2o = sql2o;
+        var dialect = Dialect.of(sql2o);
+        this.deleteReturningFileId = dialect.deleteReturning("DELETE FROM candidates WHERE id = :id", "file_id");
+        this.updateReturningOldFileId = dialect.updateReturningOld("candidates", ASSIGNMENTS, "file_id");
     }
 
     @Override
@@ -44,43 +62,98 @@ public class Sql2oCandidateRepository implements CandidateRepository {
         }
     }
 
+    /* одна команда: строка удаляется и сразу отдает ссылку на свой файл */
+    @Override
+    public Optional<Integer> deleteAndGetFileId(int id) {
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery(deleteReturningFileId).addParameter("id", id);
+            return RowMappers.firstFileId(query);
+        }
+    }
+
     @Override
     public boolean update(Candidate candidate) {
         try (var connection = sql2o.open()) {
-            var sql = """
-                     UPDATE candidates
-                     SET name = :name, description = :description, creation_date = :creationDate,
-                         city_id = :cityId, file_id = :fileId
-                     WHERE id = :id
-                     """;
-            var query = connection.createQuery(sql)
-                    .addParameter("name", candidate.getName())
-                    .addParameter("description", candidate.getDescription())
-                    .addParameter("creationDate", candidate.getCreationDate())
-                    .addParameter("cityId", candidate.getCityId())
-                    .addParameter("fileId", candidate.getFileId())
-                    .addParameter("id", candidate.getId());
-            var affectedRows = query.executeUpdate().getResult();
+            var query = connection.createQuery("UPDATE candidates SET " + ASSIGNMENTS + " WHERE id = :id");
+            var affectedRows = bind(query, candidate).executeUpdate().getResult();
             return affectedRows > 0;
         }
     }
 
+    /* одна команда: строка обновляется и отдает ссылку на файл, которая была до обновления */
     @Override
-    public Optional<Candidate> findById(int id) {
+    public Optional<Integer> updateAndGetOldFileId(Candidate candidate) {
         try (var connection = sql2o.open()) {
-            var query = connection.createQuery("SELECT * FROM candidates WHERE id = :id");
+            var query = connection.createQuery(updateReturningOldFileId);
+            return RowMappers.firstFileId(bind(query, candidate));
+        }
+    }
+
+    private Query bind(Query query, Candidate candidate) {
+        return query.addParameter("name", candidate.getName())
+                .addParameter("description", candidate.getDescription())
+                .addParameter("creationDate", candidate.getCreationDate())
+                .addParameter("cityId", candidate.getCityId())
+                .addParameter("fileId", candidate.getFileId())
+                .addParameter("id", candidate.getId());
+    }
+
+    @Override
+    public Optional<Candidate> findById(int id) {
+        try (var connection = RoutingDataSource.readOnly(sql2o::open)) {
+            var query = connection.createQuery("SELECT " + RowMappers.CANDIDATE_COLUMNS + " FROM candidates WHERE id = :id");
             query.addParameter("id", id);
-            var candidate = query.setColumnMappings(Candidate.COLUMN_MAPPING)
-                    .executeAndFetchFirst(Candidate.class);
+            var candidate = query.executeAndFetchFirst(RowMappers.CANDIDATE);
             return Optional.ofNullable(candidate);
         }
     }
 
     @Override
     public Collection<Candidate> findAll() {
-        try (var connection = sql2o.open()) {
-            var query = connection.createQuery("SELECT * FROM candidates");
-            return query.setColumnMappings(Candidate.COLUMN_MAPPING).executeAndFetch(Candidate.class);
+        try (var connection = RoutingDataSource.readOnly(sql2o::open)) {
+            var query = connection.createQuery("SELECT " + RowMappers.CANDIDATE_COLUMNS + " FROM candidates");
+            return query.executeAndFetch(RowMappers.CANDIDATE);
+        }
+    }
+
+    /* каждая страница читается по первичному ключу с позиции прошлой, без сортировки и OFFSET */
+    @Override
+    public void forEach(Consumer<? super Candidate> action) {
+        KeysetScan.forEach(sql2o, "SELECT " + RowMappers.CANDIDATE_COLUMNS + " FROM candidates WHERE id > :id ORDER BY id LIMIT :limit",
+                RowMappers.CANDIDATE, Candidate::getId, action);
+    }
+
+    /* список показывает только часть полей, поэтому description и другие тяжелые колонки не выбираются */
+    @Override
+    public Page<CandidateSummary> findSummaryPage(PageCursor cursor, int limit) {
+        try (var connection = RoutingDataSource.readOnly(sql2o::open)) {
+            var query = connection.createQuery(pageSql(cursor)).addParameter("limit", limit + 1);
+            if (cursor != null) {
+                query.addParameter("creationDate", cursor.getCreationDate())
+                        .addParameter("id", cursor.getId());
+            }
+            var rows = query.executeAndFetch(RowMappers.CANDIDATE_SUMMARY);
+            return Page.of(rows, cursor, limit, summary -> PageCursor.after(summary.getCreationDate(), summary.getId()));
+        }
+    }
+
+    private String pageSql(PageCursor cursor) {
+        if (cursor == null) {
+            return "SELECT " + RowMappers.CANDIDATE_SUMMARY_COLUMNS + " FROM candidates ORDER BY creation_date DESC, id DESC LIMIT :limit";
+        }
+        if (cursor.isBackward()) {
+            return """
+                    SELECT %s FROM candidates
+                    WHERE (creation_date, id) > (:creationDate, :id)
+                    ORDER BY creation_date, id
+                    LIMIT :limit
+                    """.formatted(RowMappers.CANDIDATE_SUMMARY_COLUMNS);
         }
+        return """
+                SELECT %s FROM candidates
+                WHERE (creation_date, id) < (:creationDate, :id)
+                ORDER BY creation_date DESC, id DESC
+                LIMIT :limit
+                """.formatted(RowMappers.CANDIDATE_SUMMARY_COLUMNS);
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package ru.job4j.dreamjob.repository;
 
 import org.springframework.stereotype.Repository;
 import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.datasource.RoutingDataSource;
 import ru.job4j.dreamjob.model.City;
 
 import java.util.Collection;
@@ -17,9 +18,9 @@ public class Sql2oCityRepository implements CityRepository {
 
     @Override
     public Collection<City> findAll() {
-        try (var connection = sql2o.open()) {
-            var query = connection.createQuery("SELECT * FROM cities");
-            return query.executeAndFetch(City.class);
+        try (var connection = RoutingDataSource.readOnly(sql2o::open)) {
+            var query = connection.createQuery("SELECT " + RowMappers.CITY_COLUMNS + " FROM cities");
+            return query.executeAndFetch(RowMappers.CITY);
         }
     }
 }
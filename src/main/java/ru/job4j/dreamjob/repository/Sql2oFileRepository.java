@@ -3,24 +3,54 @@ package ru.job4j.dreamjob.repository;
 import org.springframework.stereotype.Repository;
 import org.sql2o.Sql2o;
 import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.FileDeletion;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public class Sql2oFileRepository implements FileRepository {
 
+    /*
+     * запись со снятыми ссылками, которую давно не сохраняли повторно. Решает счетчик: строки вакансий
+     * и кандидатов на других шардах отсюда не видны, а проверки NOT EXISTS страхуют от ошибок в счетчике
+     */
+    private static final String UNREFERENCED = """
+            id > :fromId AND id <= :toId AND last_referenced < :before AND ref_count <= 0
+            AND NOT EXISTS (SELECT 1 FROM vacancies v WHERE v.file_id = files.id)
+            AND NOT EXISTS (SELECT 1 FROM candidates c WHERE c.file_id = files.id)
+            """;
+
     private final Sql2o sql2o;
 
+    private final String decrementReference;
+
+    private final String deleteLastReference;
+
     public Sql2oFileRepository(Sql2o sql2o) {
         this.sql2o = sql2o;
+        var dialect = Dialect.of(sql2o);
+        this.decrementReference = dialect.updateReturning(
+                "UPDATE files SET ref_count = ref_count - 1 WHERE id = :id", "ref_count");
+        this.deleteLastReference = dialect.insertDeleted("INSERT INTO file_deletions (path)",
+                "DELETE FROM files WHERE id = :id AND ref_count <= 0", "path");
     }
 
     @Override
     public File save(File file) {
         try (var connection = sql2o.open()) {
-            var query = connection.createQuery("INSERT INTO files (name, path) VALUES (:name, :path)", true)
+            var sql = """
+                    INSERT INTO files (name, path, hash, last_referenced)
+                    VALUES (:name, :path, :hash, :lastReferenced)
+                    """;
+            var query = connection.createQuery(sql, true)
                     .addParameter("name", file.getName())
-                    .addParameter("path", file.getPath());
+                    .addParameter("path", file.getPath())
+                    .addParameter("hash", file.getHash())
+                    .addParameter("lastReferenced", LocalDateTime.now());
             int generatedId = query.executeUpdate().getKey(Integer.class);
             file.setId(generatedId);
             return file;
@@ -30,12 +60,143 @@ public class Sql2oFileRepository implements FileRepository {
     @Override
     public Optional<File> findById(int id) {
         try (var connection = sql2o.open()) {
-            var query = connection.createQuery("SELECT * FROM files WHERE id = :id");
-            var file = query.addParameter("id", id).executeAndFetchFirst(File.class);
+            var query = connection.createQuery("SELECT " + RowMappers.FILE_COLUMNS + " FROM files WHERE id = :id");
+            var file = query.addParameter("id", id).executeAndFetchFirst(RowMappers.FILE);
             return Optional.ofNullable(file);
         }
     }
 
+    @Override
+    public Optional<File> findByHash(String hash) {
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery("SELECT " + RowMappers.FILE_COLUMNS + " FROM files WHERE hash = :hash");
+            var file = query.addParameter("hash", hash).executeAndFetchFirst(RowMappers.FILE);
+            return Optional.ofNullable(file);
+        }
+    }
+
+    @Override
+    public Collection<File> findAfter(int id, int limit) {
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery("SELECT " + RowMappers.FILE_COLUMNS + " FROM files WHERE id > :id ORDER BY id LIMIT :limit");
+            return query.addParameter("id", id)
+                    .addParameter("limit", limit)
+                    .executeAndFetch(RowMappers.FILE);
+        }
+    }
+
+    @Override
+    public boolean existsByPath(String path) {
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery("SELECT COUNT(*) FROM files WHERE path = :path");
+            return query.addParameter("path", path).executeScalar(Integer.class) > 0;
+        }
+    }
+
+    @Override
+    public Set<String> findExistingPaths(Collection<String> paths) {
+        if (paths.isEmpty()) {
+            return Set.of();
+        }
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery("SELECT path FROM files WHERE path IN (:paths)");
+            return new HashSet<>(query.addParameter("paths", paths).executeScalarList(String.class));
+        }
+    }
+
+    @Override
+    public boolean updatePath(int id, String path) {
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery("UPDATE files SET path = :path WHERE id = :id");
+            return query.addParameter("id", id)
+                    .addParameter("path", path)
+                    .executeUpdate().getResult() > 0;
+        }
+    }
+
+    @Override
+    public boolean addReference(int id) {
+        try (var connection = sql2o.open()) {
+            var sql = "UPDATE files SET ref_count = ref_count + 1, last_referenced = :now WHERE id = :id";
+            return connection.createQuery(sql)
+                    .addParameter("id", id)
+                    .addParameter("now", LocalDateTime.now())
+                    .executeUpdate().getResult() > 0;
+        }
+    }
+
+    /*
+     * Счетчик уменьшается одной командой, которая сразу возвращает остаток, поэтому до нуля его доводит
+     * ровно один запрос, и только он удаляет запись, ставя ее путь в очередь. Если между командами
+     * на файл успели сослаться снова, счетчик уже больше нуля и запись остается.
+     */
+    @Override
+    public boolean removeReference(int id) {
+        try (var connection = sql2o.open()) {
+            var remaining = connection.createQuery(decrementReference)
+                    .addParameter("id", id)
+                    .executeScalarList(Integer.class);
+            if (remaining.isEmpty() || remaining.get(0) > 0) {
+                return false;
+            }
+            return connection.createQuery(deleteLastReference)
+                    .addParameter("id", id)
+                    .executeUpdate().getResult() > 0;
+        }
+    }
+
+    @Override
+    public int deleteUnreferenced(int fromId, int toId, LocalDateTime before) {
+        try (var connection = sql2o.beginTransaction()) {
+            connection.createQuery("INSERT INTO file_deletions (path) SELECT path FROM files WHERE " + UNREFERENCED)
+                    .addParameter("fromId", fromId)
+                    .addParameter("toId", toId)
+                    .addParameter("before", before)
+                    .executeUpdate();
+            var deleted = connection.createQuery("DELETE FROM files WHERE " + UNREFERENCED)
+                    .addParameter("fromId", fromId)
+                    .addParameter("toId", toId)
+                    .addParameter("before", before)
+                    .executeUpdate().getResult();
+            connection.commit();
+            return deleted;
+        }
+    }
+
+    @Override
+    public void addDeletions(Collection<String> paths) {
+        try (var connection = sql2o.beginTransaction()) {
+            var query = connection.createQuery("INSERT INTO file_deletions (path) VALUES (:path)");
+            for (var path : paths) {
+                query.addParameter("path", path).addToBatch();
+            }
+            query.executeBatch();
+            connection.commit();
+        }
+    }
+
+    @Override
+    public Collection<FileDeletion> findDeletions(int afterId, int limit) {
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery("SELECT " + RowMappers.FILE_DELETION_COLUMNS
+                    + " FROM file_deletions WHERE id > :afterId ORDER BY id LIMIT :limit");
+            return query.addParameter("afterId", afterId)
+                    .addParameter("limit", limit)
+                    .executeAndFetch(RowMappers.FILE_DELETION);
+        }
+    }
+
+    @Override
+    public void removeDeletions(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery("DELETE FROM file_deletions WHERE id IN (:ids)");
+            query.addParameter("ids", ids).executeUpdate();
+        }
+    }
+
     @Override
     public void deleteById(int id) {
         try (var connection = sql2o.open()) {
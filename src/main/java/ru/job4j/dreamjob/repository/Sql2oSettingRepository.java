@@ -0,0 +1,41 @@
+package ru.job4j.dreamjob.repository;
+
+import org.springframework.stereotype.Repository;
+import org.sql2o.Sql2o;
+
+import java.util.Optional;
+
+@Repository
+public class Sql2oSettingRepository implements SettingRepository {
+
+    private final Sql2o sql2o;
+
+    public Sql2oSettingRepository(Sql2o sql2o) {
+        this.sql2o = sql2o;
+    }
+
+    @Override
+    public Optional<String> findByName(String name) {
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery("SELECT setting FROM settings WHERE name = :name");
+            return Optional.ofNullable(query.addParameter("name", name).executeScalar(String.class));
+        }
+    }
+
+    @Override
+    public String saveIfAbsent(String name, String value) {
+        try (var connection = sql2o.open()) {
+            var sql = """
+                    INSERT INTO settings (name, setting)
+                    SELECT :name, :value WHERE NOT EXISTS (SELECT 1 FROM settings WHERE name = :name)
+                    """;
+            connection.createQuery(sql)
+                    .addParameter("name", name)
+                    .addParameter("value", value)
+                    .executeUpdate();
+            return connection.createQuery("SELECT setting FROM settings WHERE name = :name")
+                    .addParameter("name", name)
+                    .executeScalar(String.class);
+        }
+    }
+}
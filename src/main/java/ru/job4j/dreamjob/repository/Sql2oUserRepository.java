@@ -46,10 +46,10 @@ public class Sql2oUserRepository implements UserRepository {
     public Optional<User> findByEmailAndPassword(String email, String password) {
         try (Connection connection = sql2o.open()) {
             Query query = connection.createQuery(
-                    "SELECT * FROM users WHERE email = :email AND password = :password")
+                    "SELECT " + RowMappers.USER_COLUMNS + " FROM users WHERE email = :email AND password = :password")
                     .addParameter("email", email)
                     .addParameter("password", password);
-            User user = query.executeAndFetchFirst(User.class);
+            User user = query.executeAndFetchFirst(RowMappers.USER);
             return Optional.ofNullable(user);
         }
     }
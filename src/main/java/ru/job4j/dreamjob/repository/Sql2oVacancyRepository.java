@@ -1,41 +1,90 @@
 package ru.job4j.dreamjob.repository;
 
-import org.springframework.stereotype.Repository;
+import org.sql2o.Query;
 import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.datasource.RoutingDataSource;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancySummary;
 import ru.job4j.dreamjob.model.Vacancy;
 
 import java.util.Collection;
 import java.util.Optional;
+import java.util.function.Consumer;
 
-@Repository
+/**
+ * Вакансии в одной БД. В приложении по экземпляру на шард создает {@link ShardedVacancyRepository}.
+ */
 public class Sql2oVacancyRepository implements VacancyRepository {
 
+    private static final String INSERT = """
+            INSERT INTO vacancies(title, description, creation_date, visible, city_id, file_id)
+            VALUES (:title, :description, :creationDate, :visible, :cityId, :fileId)""";
+
+    private static final String ASSIGNMENTS = """
+            title = :title, description = :description, creation_date = :creationDate,
+            visible = :visible, city_id = :cityId, file_id = :fileId""";
+
     private final Sql2o sql2o;
 
+    private final String deleteReturningFileId;
+
+    private final String updateReturningOldFileId;
+
     public Sql2oVacancyRepository(Sql2o sql2o) {
         this.sql2o = sql2o;
+        var dialect = Dialect.of(sql2o);
+        this.deleteReturningFileId = dialect.deleteReturning("DELETE FROM vacancies WHERE id = :id", "file_id");
+        this.updateReturningOldFileId = dialect.updateReturningOld("vacancies", ASSIGNMENTS, "file_id");
     }
 
     @Override
     public Vacancy save(Vacancy vacancy) {
         try (var connection = sql2o.open()) {
-            var sql = """
-                      INSERT INTO vacancies(title, description, creation_date, visible, city_id, file_id)
-                      VALUES (:title, :description, :creationDate, :visible, :cityId, :fileId)
-                      """;
-            var query = connection.createQuery(sql, true)
-                    .addParameter("title", vacancy.getTitle())
-                    .addParameter("description", vacancy.getDescription())
-                    .addParameter("creationDate", vacancy.getCreationDate())
-                    .addParameter("visible", vacancy.getVisible())
-                    .addParameter("cityId", vacancy.getCityId())
-                    .addParameter("fileId", vacancy.getFileId());
+            var query = bindInsert(connection.createQuery(INSERT, true), vacancy);
             int generatedId = query.executeUpdate().getKey(Integer.class);
             vacancy.setId(generatedId);
             return vacancy;
         }
     }
 
+    /*
+     * пачка уходит одним пакетным INSERT в одной транзакции, а id приходят ключами этого же пакета,
+     * без отдельного обращения к БД на каждую строку
+     */
+    @Override
+    public Collection<Vacancy> saveAll(Collection<Vacancy> vacancies) {
+        if (vacancies.isEmpty()) {
+            return vacancies;
+        }
+        try (var connection = sql2o.beginTransaction()) {
+            var query = connection.createQuery(INSERT, true);
+            for (var vacancy : vacancies) {
+                bindInsert(query, vacancy).addToBatch();
+            }
+            var keys = query.executeBatch().getKeys(Integer.class).iterator();
+            for (var vacancy : vacancies) {
+                vacancy.setId(keys.next());
+            }
+            connection.commit();
+            return vacancies;
+        }
+    }
+
+    private static Query bindInsert(Query query, Vacancy vacancy) {
+        return query.addParameter("title", vacancy.getTitle())
+                .addParameter("description", vacancy.getDescription())
+                .addParameter("creationDate", vacancy.getCreationDate())
+                .addParameter("visible", vacancy.getVisible())
+                .addParameter("cityId", vacancy.getCityId())
+                .addParameter("fileId", fileIdOf(vacancy));
+    }
+
+    /* у вакансии без изображения, например загруженной импортом, file_id пустой, а в модели 0 */
+    private static Integer fileIdOf(Vacancy vacancy) {
+        return vacancy.getFileId() == 0 ? null : vacancy.getFileId();
+    }
+
     @Override
     public boolean deleteById(int id) {
         try (var connection = sql2o.open()) {
@@ -45,43 +94,99 @@ public class Sql2oVacancyRepository implements VacancyRepository {
         }
     }
 
+    /* одна команда: строка удаляется и сразу отдает ссылку на свой файл */
+    @Override
+    public Optional<Integer> deleteAndGetFileId(int id) {
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery(deleteReturningFileId).addParameter("id", id);
+            return RowMappers.firstFileId(query);
+        }
+    }
+
     @Override
     public boolean update(Vacancy vacancy) {
         try (var connection = sql2o.open()) {
-            var sql = """
-                    UPDATE vacancies
-                    SET title = :title, description = :description, creation_date = :creationDate,
-                        visible = :visible, city_id = :cityId, file_id = :fileId
-                    WHERE id = :id
-                    """;
-            var query = connection.createQuery(sql)
-                    .addParameter("title", vacancy.getTitle())
-                    .addParameter("description", vacancy.getDescription())
-                    .addParameter("creationDate", vacancy.getCreationDate())
-                    .addParameter("visible", vacancy.getVisible())
-                    .addParameter("cityId", vacancy.getCityId())
-                    .addParameter("fileId", vacancy.getFileId())
-                    .addParameter("id", vacancy.getId());
-            var affectedRows = query.executeUpdate().getResult();
+            var query = connection.createQuery("UPDATE vacancies SET " + ASSIGNMENTS + " WHERE id = :id");
+            var affectedRows = bind(query, vacancy).executeUpdate().getResult();
             return affectedRows > 0;
         }
     }
 
+    /* одна команда: строка обновляется и отдает ссылку на файл, которая была до обновления */
     @Override
-    public Optional<Vacancy> findById(int id) {
+    public Optional<Integer> updateAndGetOldFileId(Vacancy vacancy) {
         try (var connection = sql2o.open()) {
-            var query = connection.createQuery("SELECT * FROM vacancies WHERE id = :id");
+            var query = connection.createQuery(updateReturningOldFileId);
+            return RowMappers.firstFileId(bind(query, vacancy));
+        }
+    }
+
+    private Query bind(Query query, Vacancy vacancy) {
+        return query.addParameter("title", vacancy.getTitle())
+                .addParameter("description", vacancy.getDescription())
+                .addParameter("creationDate", vacancy.getCreationDate())
+                .addParameter("visible", vacancy.getVisible())
+                .addParameter("cityId", vacancy.getCityId())
+                .addParameter("fileId", fileIdOf(vacancy))
+                .addParameter("id", vacancy.getId());
+    }
+
+    @Override
+    public Optional<Vacancy> findById(int id) {
+        try (var connection = RoutingDataSource.readOnly(sql2o::open)) {
+            var query = connection.createQuery("SELECT " + RowMappers.VACANCY_COLUMNS + " FROM vacancies WHERE id = :id");
             query.addParameter("id", id);
-            var vacancy = query.setColumnMappings(Vacancy.COLUMN_MAPPING).executeAndFetchFirst(Vacancy.class);
+            var vacancy = query.executeAndFetchFirst(RowMappers.VACANCY);
             return Optional.ofNullable(vacancy);
         }
     }
 
     @Override
     public Collection<Vacancy> findAll() {
-        try (var connection = sql2o.open()) {
-            var query = connection.createQuery("SELECT * FROM vacancies");
-            return query.setColumnMappings(Vacancy.COLUMN_MAPPING).executeAndFetch(Vacancy.class);
+        try (var connection = RoutingDataSource.readOnly(sql2o::open)) {
+            var query = connection.createQuery("SELECT " + RowMappers.VACANCY_COLUMNS + " FROM vacancies");
+            return query.executeAndFetch(RowMappers.VACANCY);
+        }
+    }
+
+    /* каждая страница читается по первичному ключу с позиции прошлой, без сортировки и OFFSET */
+    @Override
+    public void forEach(Consumer<? super Vacancy> action) {
+        KeysetScan.forEach(sql2o, "SELECT " + RowMappers.VACANCY_COLUMNS + " FROM vacancies WHERE id > :id ORDER BY id LIMIT :limit",
+                RowMappers.VACANCY, Vacancy::getId, action);
+    }
+
+    /* список показывает только часть полей, поэтому description и другие тяжелые колонки не выбираются */
+    @Override
+    public Page<VacancySummary> findSummaryPage(PageCursor cursor, int limit) {
+        try (var connection = RoutingDataSource.readOnly(sql2o::open)) {
+            var query = connection.createQuery(pageSql(cursor)).addParameter("limit", limit + 1);
+            if (cursor != null) {
+                query.addParameter("creationDate", cursor.getCreationDate())
+                        .addParameter("id", cursor.getId());
+            }
+            var rows = query.executeAndFetch(RowMappers.VACANCY_SUMMARY);
+            return Page.of(rows, cursor, limit, summary -> PageCursor.after(summary.getCreationDate(), summary.getId()));
+        }
+    }
+
+    private String pageSql(PageCursor cursor) {
+        if (cursor == null) {
+            return "SELECT " + RowMappers.VACANCY_SUMMARY_COLUMNS + " FROM vacancies ORDER BY creation_date DESC, id DESC LIMIT :limit";
+        }
+        if (cursor.isBackward()) {
+            return """
+                    SELECT %s FROM vacancies
+                    WHERE (creation_date, id) > (:creationDate, :id)
+                    ORDER BY creation_date, id
+                    LIMIT :limit
+                    """.formatted(RowMappers.VACANCY_SUMMARY_COLUMNS);
         }
+        return """
+                SELECT %s FROM vacancies
+                WHERE (creation_date, id) < (:creationDate, :id)
+                ORDER BY creation_date DESC, id DESC
+                LIMIT :limit
+                """.formatted(RowMappers.VACANCY_SUMMARY_COLUMNS);
     }
 }
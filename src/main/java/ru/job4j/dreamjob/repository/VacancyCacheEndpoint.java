@@ -0,0 +1,25 @@
+package ru.job4j.dreamjob.repository;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Принудительное перечитывание снимка вакансий через POST /actuator/vacancycache,
+ * например после массовых изменений с другого узла, которые не должны ждать vacancy.cache.max-staleness.
+ */
+@Component
+@Endpoint(id = "vacancycache")
+public class VacancyCacheEndpoint {
+
+    private final CachingVacancyRepository vacancyRepository;
+
+    public VacancyCacheEndpoint(CachingVacancyRepository vacancyRepository) {
+        this.vacancyRepository = vacancyRepository;
+    }
+
+    @WriteOperation
+    public void refresh() {
+        vacancyRepository.refresh();
+    }
+}
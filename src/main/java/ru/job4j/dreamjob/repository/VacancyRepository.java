@@ -1,19 +1,40 @@
 package ru.job4j.dreamjob.repository;
 
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancySummary;
 import ru.job4j.dreamjob.model.Vacancy;
 
 import java.util.Collection;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface VacancyRepository {
 
     Vacancy save(Vacancy vacancy);
 
+    /*
+     * сохраняет вакансии одним пакетом и проставляет им id; возвращает их в том же порядке.
+     * Если пакет разошелся по нескольким базам и часть из них не сохранила свою долю, бросает PartialSaveException
+     */
+    Collection<Vacancy> saveAll(Collection<Vacancy> vacancies);
+
     boolean deleteById(int id);
 
+    /* удаляет запись и возвращает ее file_id, пусто, если записи не было */
+    Optional<Integer> deleteAndGetFileId(int id);
+
     boolean update(Vacancy vacancy);
 
+    /* обновляет запись и возвращает file_id, который был у нее до обновления, пусто, если записи нет */
+    Optional<Integer> updateAndGetOldFileId(Vacancy vacancy);
+
     Optional<Vacancy> findById(int id);
 
     Collection<Vacancy> findAll();
+
+    /* передает все записи обработчику по одной, не собирая их в память */
+    void forEach(Consumer<? super Vacancy> action);
+
+    Page<VacancySummary> findSummaryPage(PageCursor cursor, int limit);
 }
\ No newline at end of file
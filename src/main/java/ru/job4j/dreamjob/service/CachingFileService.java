@@ -0,0 +1,119 @@
+package ru.job4j.dreamjob.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import ru.job4j.dreamjob.cache.ByteBudgetCache;
+import ru.job4j.dreamjob.cache.ByteBudgetCacheMetrics;
+import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.FileResourceDto;
+import ru.job4j.dreamjob.dto.ImageSize;
+import ru.job4j.dreamjob.model.File;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Кеш перед {@link SimpleFileService}: хранит метаданные файла и, для небольших файлов, его содержимое.
+ * Объем кеша ограничен в байтах. Крупные файлы кешируются только метаданными и отдаются с диска потоком.
+ */
+@Service
+@Primary
+@ThreadSafe
+public class CachingFileService implements FileService {
+
+    /* примерный размер объектов записи без учета содержимого */
+    private static final long ENTRY_OVERHEAD = 256;
+
+    private final FileService fileService;
+
+    private final long maxContentBytes;
+
+    private final ByteBudgetCache<String, FileResourceDto> cache;
+
+    public CachingFileService(FileService simpleFileService,
+                              @Value("${file.cache.max-size}") DataSize maxSize,
+                              @Value("${file.cache.max-content-size}") DataSize maxContentSize,
+                              MeterRegistry meterRegistry) {
+        this.fileService = simpleFileService;
+        this.maxContentBytes = maxContentSize.toBytes();
+        this.cache = new ByteBudgetCache<>(maxSize.toBytes(), this::weigh);
+        new ByteBudgetCacheMetrics(cache, "files").bindTo(meterRegistry);
+    }
+
+    @Override
+    public File save(FileDto fileDto) {
+        return fileService.save(fileDto);
+    }
+
+    /*
+     * Оригинал, отданный вместо еще не построенной копии, кешируется и под ключом копии, чтобы файлы
+     * без копий не читались из БД и с диска на каждый запрос. Запись забывается, когда копии готовы.
+     */
+    @Override
+    public Optional<FileResourceDto> getFileById(int id, ImageSize size) {
+        return cache.get(key(id, size), key -> load(id, size));
+    }
+
+    @EventListener
+    public void onVariantsReady(ImageVariantsReadyEvent event) {
+        for (var size : ImageSize.values()) {
+            if (size != ImageSize.ORIGINAL) {
+                cache.invalidate(key(event.getFileId(), size));
+            }
+        }
+    }
+
+    @Override
+    public void deleteById(int id) {
+        fileService.deleteById(id);
+        invalidate(id);
+    }
+
+    @Override
+    public boolean relocate(File file) {
+        var relocated = fileService.relocate(file);
+        if (relocated) {
+            invalidate(file.getId());
+        }
+        return relocated;
+    }
+
+    private void invalidate(int id) {
+        for (var size : ImageSize.values()) {
+            cache.invalidate(key(id, size));
+        }
+    }
+
+    private String key(int id, ImageSize size) {
+        return id + ":" + size.getSuffix();
+    }
+
+    /* замена берется из записи оригинала, так что обе записи делят одно содержимое в памяти */
+    private Optional<FileResourceDto> load(int id, ImageSize size) {
+        var file = fileService.getFileById(id, size);
+        if (file.isPresent() && file.get().getVariant() != size) {
+            return getFileById(id, ImageSize.ORIGINAL);
+        }
+        return file.map(found -> found.getSize() > maxContentBytes ? found : inMemory(found));
+    }
+
+    private FileResourceDto inMemory(FileResourceDto file) {
+        try (var input = file.getResource().getInputStream()) {
+            return new FileResourceDto(file.getName(), file.getMediaType(), file.getSize(), file.getEtag(),
+                    file.getLastModified(), file.getVariant(), new ByteArrayResource(input.readAllBytes()));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long weigh(FileResourceDto file) {
+        var content = file.getResource() instanceof ByteArrayResource ? file.getSize() : 0;
+        return ENTRY_OVERHEAD + content;
+    }
+}
@@ -1,6 +1,9 @@
 package ru.job4j.dreamjob.service;
 
+import ru.job4j.dreamjob.dto.CandidateSummary;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
 import ru.job4j.dreamjob.model.Candidate;
 
 import java.util.Collection;
@@ -17,4 +20,6 @@ public interface CandidateService {
     Optional<Candidate> findById(int id);
 
     Collection<Candidate> findAll();
+
+    Page<CandidateSummary> findSummaryPage(PageCursor cursor, int limit);
 }
@@ -0,0 +1,69 @@
+package ru.job4j.dreamjob.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковое чтение CSV по записям (RFC 4180): поля через запятую, поле в кавычках может содержать
+ * запятые, переводы строк и удвоенные кавычки. Кавычка внутри поля без кавычек считается обычным символом.
+ */
+class CsvReader {
+
+    private static final char BOM = '\uFEFF';
+
+    private final Reader reader;
+
+    private int next;
+
+    CsvReader(Reader reader) throws IOException {
+        this.reader = reader;
+        this.next = reader.read();
+        if (next == BOM) {
+            next = reader.read();
+        }
+    }
+
+    /* следующая запись или null, если поток закончился */
+    List<String> next() throws IOException {
+        if (next == -1) {
+            return null;
+        }
+        var fields = new ArrayList<String>();
+        var field = new StringBuilder();
+        var quoted = false;
+        var atFieldStart = true;
+        while (next != -1) {
+            var ch = (char) next;
+            next = reader.read();
+            if (quoted) {
+                if (ch != '"') {
+                    field.append(ch);
+                } else if (next == '"') {
+                    field.append('"');
+                    next = reader.read();
+                } else {
+                    quoted = false;
+                }
+            } else if (ch == '"' && atFieldStart) {
+                quoted = true;
+                atFieldStart = false;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                atFieldStart = true;
+            } else if (ch == '\n' || ch == '\r') {
+                if (ch == '\r' && next == '\n') {
+                    next = reader.read();
+                }
+                break;
+            } else {
+                field.append(ch);
+                atFieldStart = false;
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
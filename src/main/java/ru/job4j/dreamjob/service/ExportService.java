@@ -0,0 +1,19 @@
+package ru.job4j.dreamjob.service;
+
+import ru.job4j.dreamjob.dto.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Полная выгрузка вакансий и кандидатов. Записи пишутся в поток по мере чтения из БД,
+ * поэтому память не зависит от числа записей. Поток не закрывается.
+ */
+public interface ExportService {
+
+    /* CSV с заголовком id,title,description,creationDate,visible,cityId,fileId или NDJSON с теми же полями */
+    void exportVacancies(ExportFormat format, OutputStream output) throws IOException;
+
+    /* CSV с заголовком id,name,description,creationDate,cityId,fileId или NDJSON с теми же полями */
+    void exportCandidates(ExportFormat format, OutputStream output) throws IOException;
+}
@@ -0,0 +1,89 @@
+package ru.job4j.dreamjob.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.job4j.dreamjob.repository.FileRepository;
+import ru.job4j.dreamjob.repository.SettingRepository;
+
+import java.time.Duration;
+
+/**
+ * Переносит файлы, сохраненные плоским списком в корне хранилища, в раскладку по подкаталогам.
+ * Работает в фоне после старта приложения порциями по file.migration.batch-size записей и не мешает раздаче;
+ * уже перенесенные файлы пропускаются без обращения к диску, поэтому повторный запуск безопасен.
+ * Проход без ошибок отмечается в таблице settings, и следующие запуски таблицу files уже не читают.
+ */
+@Service
+public class FileLayoutMigration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileLayoutMigration.class.getName());
+
+    static final String COMPLETED = "files.layout.migrated";
+
+    private final FileRepository fileRepository;
+
+    private final SettingRepository settingRepository;
+
+    private final FileService fileService;
+
+    private final int batchSize;
+
+    private final Duration batchPause;
+
+    public FileLayoutMigration(FileRepository sql2oFileRepository, SettingRepository sql2oSettingRepository,
+                               FileService fileService,
+                               @Value("${file.migration.batch-size}") int batchSize,
+                               @Value("${file.migration.batch-pause}") Duration batchPause) {
+        this.fileRepository = sql2oFileRepository;
+        this.settingRepository = sql2oSettingRepository;
+        this.fileService = fileService;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (settingRepository.findByName(COMPLETED).isPresent()) {
+            return;
+        }
+        var thread = new Thread(this::migrate, "file-layout-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /* отметка ставится, только если проход дошел до конца таблицы и ни один файл не упал */
+    public int migrate() {
+        var lastId = 0;
+        var moved = 0;
+        var failed = 0;
+        try {
+            var batch = fileRepository.findAfter(lastId, batchSize);
+            while (!batch.isEmpty()) {
+                for (var file : batch) {
+                    try {
+                        moved += fileService.relocate(file) ? 1 : 0;
+                    } catch (RuntimeException e) {
+                        LOG.warn("Не удалось перенести файл {}", file.getPath(), e);
+                        failed++;
+                    }
+                    lastId = file.getId();
+                }
+                Thread.sleep(batchPause.toMillis());
+                batch = fileRepository.findAfter(lastId, batchSize);
+            }
+            if (failed == 0) {
+                settingRepository.saveIfAbsent(COMPLETED, "true");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (moved > 0) {
+            LOG.info("Перенесено файлов в новую раскладку хранилища: {}", moved);
+        }
+        return moved;
+    }
+}
@@ -1,6 +1,8 @@
 package ru.job4j.dreamjob.service;
 
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.FileResourceDto;
+import ru.job4j.dreamjob.dto.ImageSize;
 import ru.job4j.dreamjob.model.File;
 
 import java.util.Optional;
@@ -9,7 +11,17 @@ public interface FileService {
 
     File save(FileDto fileDto);
 
-    Optional<FileDto> getFileById(int id);
+    /**
+     * Возвращает уменьшенную копию изображения заданного размера, а если она еще не готова, то оригинал.
+     * Фактически отданный размер указан в {@link FileResourceDto#getVariant()}.
+     */
+    Optional<FileResourceDto> getFileById(int id, ImageSize size);
 
     void deleteById(int id);
+
+    /**
+     * Переносит содержимое файла в текущую раскладку каталогов хранилища, не прерывая его раздачу.
+     * Возвращает true, если файл был перемещен.
+     */
+    boolean relocate(File file);
 }
@@ -0,0 +1,149 @@
+package ru.job4j.dreamjob.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.repository.FileRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Сверяет хранилище с таблицей files. Записи, ссылки на которые сняты, но сами записи остались,
+ * и файлы на диске без записи ставятся в очередь на удаление, которую разбирает {@link SimpleFileService}.
+ * За один запуск проверяется одна порция записей и один каталог верхнего уровня хранилища,
+ * а все, что моложе file.reconcile.grace-period, не трогается, чтобы не задеть незавершенные загрузки.
+ */
+@Service
+public class FileStorageReconciler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileStorageReconciler.class.getName());
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final FileRepository fileRepository;
+
+    private final ImageVariantService imageVariantService;
+
+    private final Path root;
+
+    private final int batchSize;
+
+    private final Duration gracePeriod;
+
+    /* позиции обхода живут только в памяти: после перезапуска сверка просто начинается сначала */
+    private final Deque<Path> pendingDirectories = new ArrayDeque<>();
+
+    private int lastFileId;
+
+    public FileStorageReconciler(FileRepository sql2oFileRepository, ImageVariantService imageVariantService,
+                                 @Value("${file.directory}") String storageDirectory,
+                                 @Value("${file.reconcile.batch-size}") int batchSize,
+                                 @Value("${file.reconcile.grace-period}") Duration gracePeriod) {
+        this.fileRepository = sql2oFileRepository;
+        this.imageVariantService = imageVariantService;
+        this.root = Path.of(storageDirectory);
+        this.batchSize = batchSize;
+        this.gracePeriod = gracePeriod;
+    }
+
+    @Scheduled(fixedDelayString = "${file.reconcile.interval}", initialDelayString = "${file.reconcile.interval}")
+    public void reconcile() {
+        reconcileTable();
+        reconcileStorage();
+    }
+
+    public int reconcileTable() {
+        var batch = fileRepository.findAfter(lastFileId, batchSize);
+        if (batch.isEmpty()) {
+            lastFileId = 0;
+            return 0;
+        }
+        var toId = batch.stream().mapToInt(File::getId).max().getAsInt();
+        var deleted = fileRepository.deleteUnreferenced(lastFileId, toId, LocalDateTime.now().minus(gracePeriod));
+        lastFileId = toId;
+        if (deleted > 0) {
+            LOG.info("Удалено записей о файлах без владельца: {}", deleted);
+        }
+        return deleted;
+    }
+
+    public int reconcileStorage() {
+        if (pendingDirectories.isEmpty() && !refillDirectories()) {
+            return 0;
+        }
+        var directory = pendingDirectories.poll();
+        try {
+            var orphans = findOrphans(directory);
+            fileRepository.addDeletions(orphans);
+            if (!orphans.isEmpty()) {
+                LOG.info("Файлов без записи в каталоге {}: {}", directory, orphans.size());
+            }
+            return orphans.size();
+        } catch (IOException | UncheckedIOException e) {
+            LOG.warn("Не удалось проверить каталог {}", directory, e);
+            return 0;
+        }
+    }
+
+    /*
+     * Пути в таблице сравниваются с путями на диске как строки, поэтому если file.directory
+     * записан иначе, чем в сохраненных путях, сверка по диску не выполняется вовсе
+     */
+    private boolean refillDirectories() {
+        var sample = fileRepository.findAfter(0, 1);
+        if (!sample.isEmpty() && !Path.of(sample.iterator().next().getPath()).startsWith(root)) {
+            LOG.warn("Пути файлов в таблице не начинаются с {}, сверка хранилища пропущена", root);
+            return false;
+        }
+        pendingDirectories.add(root);
+        try (var paths = Files.list(root)) {
+            paths.filter(Files::isDirectory).sorted().forEach(pendingDirectories::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    /* в корне лежат только файлы старой плоской раскладки, подкаталоги обходятся отдельными запусками */
+    private List<String> findOrphans(Path directory) throws IOException {
+        var cutoff = FileTime.from(Instant.now().minus(gracePeriod));
+        var maxDepth = directory.equals(root) ? 1 : Integer.MAX_VALUE;
+        Set<String> sources = new LinkedHashSet<>();
+        try (var paths = Files.walk(directory, maxDepth)) {
+            for (var path : (Iterable<Path>) paths::iterator) {
+                if (!Files.isRegularFile(path) || Files.getLastModifiedTime(path).compareTo(cutoff) > 0) {
+                    continue;
+                }
+                if (path.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(path);
+                    continue;
+                }
+                sources.add(imageVariantService.findSource(path).orElse(path).toString());
+            }
+        }
+        var candidates = new ArrayList<>(sources);
+        var orphans = new ArrayList<String>();
+        for (int from = 0; from < candidates.size(); from += batchSize) {
+            var chunk = candidates.subList(from, Math.min(from + batchSize, candidates.size()));
+            var existing = fileRepository.findExistingPaths(chunk);
+            chunk.stream().filter(path -> !existing.contains(path)).forEach(orphans::add);
+        }
+        return orphans;
+    }
+}
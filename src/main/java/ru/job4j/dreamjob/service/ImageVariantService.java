@@ -0,0 +1,25 @@
+package ru.job4j.dreamjob.service;
+
+import org.springframework.core.io.Resource;
+import ru.job4j.dreamjob.dto.ImageSize;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+public interface ImageVariantService {
+
+    /*
+     * копии кладутся рядом с адресом source, а содержимое читается из content. onGenerated вызывается
+     * в фоновом потоке, когда копии записаны; если content не изображение, он не вызывается
+     */
+    void generate(Path source, Resource content, Runnable onGenerated);
+
+    Optional<Path> findVariant(Path source, ImageSize size);
+
+    /* исходный файл для пути уменьшенной копии, если путь является копией */
+    Optional<Path> findSource(Path variant);
+
+    void moveVariants(Path source, Path target);
+
+    void deleteVariants(Path source);
+}
@@ -0,0 +1,18 @@
+package ru.job4j.dreamjob.service;
+
+/**
+ * Уменьшенные копии изображения записаны на диск. До этого вместо них отдавался оригинал,
+ * и кеши, запомнившие такую замену, должны ее забыть.
+ */
+public class ImageVariantsReadyEvent {
+
+    private final int fileId;
+
+    public ImageVariantsReadyEvent(int fileId) {
+        this.fileId = fileId;
+    }
+
+    public int getFileId() {
+        return fileId;
+    }
+}
@@ -1,11 +1,22 @@
 package ru.job4j.dreamjob.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import net.jcip.annotations.ThreadSafe;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.job4j.dreamjob.cache.TinyLfuCache;
+import ru.job4j.dreamjob.cache.TinyLfuCacheMetrics;
+import ru.job4j.dreamjob.datasource.RoutingDataSource;
+import ru.job4j.dreamjob.datasource.UnitOfWork;
+import ru.job4j.dreamjob.dto.CandidateSummary;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
 import ru.job4j.dreamjob.model.Candidate;
+import ru.job4j.dreamjob.model.City;
 import ru.job4j.dreamjob.repository.CandidateRepository;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Optional;
 
@@ -17,9 +28,24 @@ public class SimpleCandidateService implements CandidateService {
 
     private final FileService fileService;
 
-    public SimpleCandidateService(CandidateRepository sql2oCandidateRepository, FileService fileService) {
-        this.candidateRepository = sql2oCandidateRepository;
+    private final CityService cityService;
+
+    private final UnitOfWork unitOfWork;
+
+    /* карточки кандидатов по id: немногие популярные анкеты получают большую часть просмотров */
+    private final TinyLfuCache<Integer, Candidate> cache;
+
+    public SimpleCandidateService(CandidateRepository shardedCandidateRepository, FileService fileService,
+                                  CityService cityService, UnitOfWork unitOfWork,
+                                  @Value("${candidate.cache.max-size}") int maxSize,
+                                  @Value("${candidate.cache.ttl}") Duration ttl,
+                                  MeterRegistry meterRegistry) {
+        this.candidateRepository = shardedCandidateRepository;
         this.fileService = fileService;
+        this.cityService = cityService;
+        this.unitOfWork = unitOfWork;
+        this.cache = new TinyLfuCache<>(maxSize, ttl);
+        new TinyLfuCacheMetrics(cache, "candidates").bindTo(meterRegistry);
     }
 
     @Override
@@ -28,34 +54,46 @@ public class SimpleCandidateService implements CandidateService {
         return candidateRepository.save(candidate);
     }
 
+    /*
+     * запись кандидата и ссылка на его файл удаляются одной транзакцией, file_id возвращает сам DELETE;
+     * сам файл удаляется с диска позже, из очереди file_deletions
+     */
     @Override
     public boolean deleteById(int id) {
-        boolean result = false;
-        var candidateOptional = findById(id);
-        if (candidateOptional.isPresent()) {
-            result = candidateRepository.deleteById(id);
-            fileService.deleteById(candidateOptional.get().getFileId());
-        }
-        return result;
+        return unitOfWork.execute(() -> {
+            var fileId = candidateRepository.deleteAndGetFileId(id);
+            fileId.ifPresent(fileService::deleteById);
+            unitOfWork.afterCommit(() -> cache.invalidate(id));
+            return fileId.isPresent();
+        });
     }
 
     @Override
     public boolean update(Candidate candidate, FileDto image) {
-        var isNewFileEmpty = image.getContent().length == 0;
+        var isNewFileEmpty = image.getSize() == 0;
         if (isNewFileEmpty) {
-            return candidateRepository.update(candidate);
+            var isUpdated = candidateRepository.update(candidate);
+            cache.invalidate(candidate.getId());
+            return isUpdated;
         }
-        /* если передан новый не пустой файл, то старый удаляем, а новый сохраняем */
-        var oldFileId = candidate.getFileId();
+        /*
+         * если передан новый не пустой файл, то старый удаляем, а новый сохраняем;
+         * новый файл сохраняется до транзакции, чтобы одинаковые загрузки из разных запросов
+         * находили уже зафиксированную запись files по хешу
+         */
         saveNewFile(candidate, image);
-        var isUpdated = candidateRepository.update(candidate);
-        fileService.deleteById(oldFileId);
-        return isUpdated;
+        return unitOfWork.execute(() -> {
+            var oldFileId = candidateRepository.updateAndGetOldFileId(candidate);
+            /* если запись не обновилась, ссылка снимается с только что сохраненного файла, а старый остается */
+            fileService.deleteById(oldFileId.orElse(candidate.getFileId()));
+            unitOfWork.afterCommit(() -> cache.invalidate(candidate.getId()));
+            return oldFileId.isPresent();
+        });
     }
 
     @Override
     public Optional<Candidate> findById(int id) {
-        return candidateRepository.findById(id);
+        return cache.get(id, key -> RoutingDataSource.onPrimary(() -> candidateRepository.findById(key)));
     }
 
     @Override
@@ -63,6 +101,16 @@ public class SimpleCandidateService implements CandidateService {
         return candidateRepository.findAll();
     }
 
+    /* названия городов берутся из справочника в памяти, поэтому страница из N строк не дает N запросов */
+    @Override
+    public Page<CandidateSummary> findSummaryPage(PageCursor cursor, int limit) {
+        return candidateRepository.findSummaryPage(cursor, limit).map(this::withCityName);
+    }
+
+    private CandidateSummary withCityName(CandidateSummary candidate) {
+        return candidate.withCityName(cityService.findById(candidate.getCityId()).map(City::getName).orElse(null));
+    }
+
     private void saveNewFile(Candidate candidate, FileDto image) {
         var file = fileService.save(image);
         candidate.setFileId(file.getId());
@@ -1,22 +1,90 @@
 package ru.job4j.dreamjob.service;
 
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import ru.job4j.dreamjob.datasource.RoutingDataSource;
 import ru.job4j.dreamjob.model.City;
 import ru.job4j.dreamjob.repository.CityRepository;
 
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
 
+/**
+ * Справочник городов меняется практически только миграциями, поэтому он читается из БД один раз
+ * при старте в неизменяемый снимок и дальше отдается из памяти. Снимок перечитывается
+ * раз в city.cache.refresh-interval, так что изменение справочника становится видно без перезапуска.
+ */
 @Service
+@ThreadSafe
 public class SimpleCityService implements CityService {
 
     private final CityRepository cityRepository;
 
+    private volatile Snapshot snapshot;
+
     public SimpleCityService(CityRepository sql2oCityRepository) {
         this.cityRepository = sql2oCityRepository;
     }
 
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${city.cache.refresh-interval}", initialDelayString = "${city.cache.refresh-interval}")
+    @Override
+    public void refresh() {
+        snapshot = Snapshot.of(RoutingDataSource.onPrimary(cityRepository::findAll));
+    }
+
     @Override
     public Collection<City> findAll() {
-        return cityRepository.findAll();
+        return current().cities;
+    }
+
+    @Override
+    public Optional<City> findById(int id) {
+        var byId = current().byId;
+        return id >= 0 && id < byId.length ? Optional.ofNullable(byId[id]) : Optional.empty();
+    }
+
+    /* до ApplicationReadyEvent снимок загружается при первом обращении */
+    private Snapshot current() {
+        var current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Города в порядке id и массив, индексированный id: идентификаторы городов плотные,
+     * поэтому поиск по id обходится одним обращением к массиву.
+     */
+    private static final class Snapshot {
+
+        private final List<City> cities;
+
+        private final City[] byId;
+
+        private Snapshot(List<City> cities, City[] byId) {
+            this.cities = cities;
+            this.byId = byId;
+        }
+
+        static Snapshot of(Collection<City> cities) {
+            var sorted = cities.stream().sorted(Comparator.comparingInt(City::getId)).toList();
+            var byId = new City[sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1).getId() + 1];
+            for (var city : sorted) {
+                byId[city.getId()] = city;
+            }
+            return new Snapshot(sorted, byId);
+        }
     }
 }
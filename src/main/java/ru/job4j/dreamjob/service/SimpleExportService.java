@@ -0,0 +1,110 @@
+package ru.job4j.dreamjob.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.stereotype.Service;
+import ru.job4j.dreamjob.dto.ExportFormat;
+import ru.job4j.dreamjob.model.Candidate;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.CandidateRepository;
+import ru.job4j.dreamjob.repository.VacancyRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Выгрузка обходит репозиторий через forEach, который читает БД короткими запросами по страницам,
+ * и пишет каждую запись в поток сразу же. Буфер записи фиксированного размера, так что сервлет отправляет ответ частями
+ * по мере заполнения буфера, а сжатие gzip, если оно включено, тоже идет потоком.
+ */
+@Service
+@ThreadSafe
+public class SimpleExportService implements ExportService {
+
+    private static final List<String> VACANCY_HEADER = List.of(
+            "id", "title", "description", "creationDate", "visible", "cityId", "fileId");
+
+    private static final List<String> CANDIDATE_HEADER = List.of(
+            "id", "name", "description", "creationDate", "cityId", "fileId");
+
+    private final VacancyRepository vacancyRepository;
+
+    private final CandidateRepository candidateRepository;
+
+    private final ObjectMapper objectMapper;
+
+    public SimpleExportService(VacancyRepository cachingVacancyRepository,
+                               CandidateRepository shardedCandidateRepository, ObjectMapper objectMapper) {
+        this.vacancyRepository = cachingVacancyRepository;
+        this.candidateRepository = shardedCandidateRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void exportVacancies(ExportFormat format, OutputStream output) throws IOException {
+        Function<Vacancy, List<String>> fields = vacancy -> List.of(String.valueOf(vacancy.getId()),
+                vacancy.getTitle(), vacancy.getDescription(), String.valueOf(vacancy.getCreationDate()),
+                String.valueOf(vacancy.getVisible()), String.valueOf(vacancy.getCityId()),
+                String.valueOf(vacancy.getFileId()));
+        export(format, output, vacancyRepository::forEach, VACANCY_HEADER, fields);
+    }
+
+    @Override
+    public void exportCandidates(ExportFormat format, OutputStream output) throws IOException {
+        Function<Candidate, List<String>> fields = candidate -> List.of(String.valueOf(candidate.getId()),
+                candidate.getName(), candidate.getDescription(), String.valueOf(candidate.getCreationDate()),
+                String.valueOf(candidate.getCityId()), String.valueOf(candidate.getFileId()));
+        export(format, output, candidateRepository::forEach, CANDIDATE_HEADER, fields);
+    }
+
+    private <T> void export(ExportFormat format, OutputStream output, Consumer<Consumer<T>> rows,
+                            List<String> header, Function<T, List<String>> fields) throws IOException {
+        try {
+            if (format == ExportFormat.NDJSON) {
+                writeNdjson(output, rows);
+            } else {
+                writeCsv(output, rows, header, fields);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private <T> void writeCsv(OutputStream output, Consumer<Consumer<T>> rows,
+                              List<String> header, Function<T, List<String>> fields) throws IOException {
+        var csv = new CsvWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+        csv.write(header);
+        rows.accept(row -> {
+            try {
+                csv.write(fields.apply(row));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        csv.flush();
+    }
+
+    /* по объекту на строку; разделитель между объектами генератора отключен, перевод строки пишется сам */
+    private <T> void writeNdjson(OutputStream output, Consumer<Consumer<T>> rows) throws IOException {
+        try (var generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            rows.accept(row -> {
+                try {
+                    generator.writeObject(row);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
@@ -1,28 +1,74 @@
 package ru.job4j.dreamjob.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.FileResourceDto;
+import ru.job4j.dreamjob.dto.ImageSize;
 import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.FileDeletion;
 import ru.job4j.dreamjob.repository.FileRepository;
+import ru.job4j.dreamjob.storage.Blob;
+import ru.job4j.dreamjob.storage.BlobStore;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 public class SimpleFileService implements FileService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SimpleFileService.class.getName());
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Object[] locks = Stream.generate(Object::new).limit(LOCK_STRIPES).toArray();
+
     private final FileRepository fileRepository;
 
     private final String storageDirectory;
 
+    private final int bufferSize;
+
+    private final ImageVariantService imageVariantService;
+
+    private final int deletionBatchSize;
+
+    private final BlobStore blobStore;
+
+    private final ApplicationEventPublisher eventPublisher;
+
     public SimpleFileService(FileRepository sql2oFileRepository,
-                             @Value("${file.directory}") String storageDirectory) {
+                             @Value("${file.directory}") String storageDirectory,
+                             @Value("${file.buffer-size}") int bufferSize,
+                             ImageVariantService imageVariantService,
+                             @Value("${file.deletion.batch-size}") int deletionBatchSize,
+                             BlobStore blobStore, ApplicationEventPublisher eventPublisher) {
         this.fileRepository = sql2oFileRepository;
         this.storageDirectory = storageDirectory;
+        this.bufferSize = bufferSize;
+        this.imageVariantService = imageVariantService;
+        this.deletionBatchSize = deletionBatchSize;
+        this.blobStore = blobStore;
+        this.eventPublisher = eventPublisher;
         createStorageDirectory(storageDirectory);
     }
 
@@ -34,49 +80,192 @@ public class SimpleFileService implements FileService {
         }
     }
 
+    /*
+     * Файлы хранятся по хешу содержимого: одинаковые загрузки разделяют один файл на диске
+     * и одну запись в таблице files, а ссылки на нее считаются в ref_count.
+     */
     @Override
     public File save(FileDto fileDto) {
-        var path = getNewFilePath(fileDto.getName());
-        writeFileBytes(path, fileDto.getContent());
-        return fileRepository.save(new File(fileDto.getName(), path));
+        var tempPath = createTempFile();
+        var hash = writeFileContent(tempPath, fileDto.getContent());
+        synchronized (lockFor(hash)) {
+            var existing = fileRepository.findByHash(hash);
+            if (existing.isPresent() && fileRepository.addReference(existing.get().getId())) {
+                deleteFile(tempPath);
+                return existing.get();
+            }
+            var location = blobStore.put(hash, Path.of(tempPath));
+            var file = fileRepository.save(new File(fileDto.getName(), location, hash));
+            blobStore.find(location).ifPresent(blob -> generateVariants(file, blob));
+            return file;
+        }
     }
 
-    private String getNewFilePath(String sourceName) {
-        return storageDirectory + java.io.File.separator + UUID.randomUUID() + sourceName;
+    private void generateVariants(File file, Blob blob) {
+        imageVariantService.generate(Path.of(file.getPath()), blob.getResource(),
+                () -> eventPublisher.publishEvent(new ImageVariantsReadyEvent(file.getId())));
     }
 
-    private void writeFileBytes(String path, byte[] content) {
+    /* имя файла на диске не меняется при переносе и служит ключом блокировки */
+    private String getBlobName(File file) {
+        return Path.of(file.getPath()).getFileName().toString();
+    }
+
+    private String createTempFile() {
         try {
-            Files.write(Path.of(path), content);
+            return Files.createTempFile(Path.of(storageDirectory), "upload", ".tmp").toString();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /* содержимое копируется через буфер фиксированного размера и хешируется по ходу записи */
+    private String writeFileContent(String path, InputStreamSource content) {
+        var digest = createDigest();
+        try (var input = content.getInputStream();
+             var output = Files.newOutputStream(Path.of(path))) {
+            var buffer = new byte[bufferSize];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                output.write(buffer, 0, read);
+            }
         } catch (IOException e) {
+            deleteFile(path);
+            throw new RuntimeException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private Object lockFor(String key) {
+        return locks[Math.floorMod(key.hashCode(), locks.length)];
+    }
+
     @Override
-    public Optional<FileDto> getFileById(int id) {
+    public Optional<FileResourceDto> getFileById(int id, ImageSize size) {
         var fileOptional = fileRepository.findById(id);
         if (fileOptional.isEmpty()) {
             return Optional.empty();
         }
-        var content = readFileAsBytes(fileOptional.get().getPath());
-        return Optional.of(new FileDto(fileOptional.get().getName(), content));
+        var file = fileOptional.get();
+        var variant = imageVariantService.findVariant(Path.of(file.getPath()), size);
+        if (variant.isPresent()) {
+            var attributes = readAttributes(variant.get());
+            var blob = new Blob(attributes.size(), attributes.lastModifiedTime().toMillis(),
+                    new FileSystemResource(variant.get()));
+            return Optional.of(toResource(file, blob, MediaType.IMAGE_JPEG, size));
+        }
+        var mediaType = MediaTypeFactory.getMediaType(file.getName()).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        var blob = blobStore.find(file.getPath());
+        /* копии файлов, загруженных до их появления, или не построенные из-за очереди строятся по первому запросу */
+        if (blob.isPresent() && size != ImageSize.ORIGINAL && "image".equals(mediaType.getType())) {
+            generateVariants(file, blob.get());
+        }
+        return blob.map(content -> toResource(file, content, mediaType, ImageSize.ORIGINAL));
     }
 
-    private byte[] readFileAsBytes(String path) {
+    private FileResourceDto toResource(File file, Blob blob, MediaType mediaType, ImageSize variant) {
+        var etag = getEtag(file, blob.getLastModified());
+        if (variant != ImageSize.ORIGINAL) {
+            etag += "-" + variant.getSuffix();
+        }
+        return new FileResourceDto(file.getName(), mediaType, blob.getSize(), etag, blob.getLastModified(), variant,
+                blob.getResource());
+    }
+
+    /* хеш однозначно определяет содержимое; у старых файлов без хеша версию задает время изменения */
+    private String getEtag(File file, long lastModified) {
+        return file.getHash() != null ? file.getHash() : file.getId() + "-" + lastModified;
+    }
+
+    private BasicFileAttributes readAttributes(Path path) {
         try {
-            return Files.readAllBytes(Path.of(path));
+            return Files.readAttributes(path, BasicFileAttributes.class);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /* запрос только снимает ссылку, а содержимое с диска удаляет фоновая очистка очереди file_deletions */
     @Override
     public void deleteById(int id) {
-        var fileOptional = fileRepository.findById(id);
-        if (fileOptional.isPresent()) {
-            deleteFile(fileOptional.get().getPath());
-            fileRepository.deleteById(id);
+        /* 0 - запись без изображения, ссылку снимать не с чего */
+        if (id != 0) {
+            fileRepository.removeReference(id);
+        }
+    }
+
+    /*
+     * Путь проверяется под той же блокировкой, что и сохранение: если за это время файл с тем же
+     * содержимым загрузили заново, запись снова ссылается на путь, и удалять его нельзя.
+     * Неудавшееся удаление остается в очереди до следующего запуска, а обход идет дальше по id,
+     * так что такие записи не мешают разбирать остальные.
+     */
+    @Scheduled(fixedDelayString = "${file.deletion.interval}")
+    public void purgeDeleted() {
+        var lastId = 0;
+        Collection<FileDeletion> batch;
+        do {
+            batch = fileRepository.findDeletions(lastId, deletionBatchSize);
+            var purged = new ArrayList<Integer>();
+            for (var deletion : batch) {
+                if (purge(deletion)) {
+                    purged.add(deletion.getId());
+                }
+                lastId = deletion.getId();
+            }
+            fileRepository.removeDeletions(purged);
+        } while (batch.size() == deletionBatchSize);
+    }
+
+    private boolean purge(FileDeletion deletion) {
+        var path = Path.of(deletion.getPath());
+        synchronized (lockFor(path.getFileName().toString())) {
+            try {
+                if (!fileRepository.existsByPath(deletion.getPath())) {
+                    blobStore.delete(deletion.getPath());
+                    imageVariantService.deleteVariants(path);
+                }
+                return true;
+            } catch (RuntimeException e) {
+                LOG.warn("Не удалось удалить файл {}, попытка будет повторена", deletion.getPath(), e);
+                return false;
+            }
+        }
+    }
+
+    /*
+     * Сначала блоб появляется по новому адресу, затем меняется запись, и только потом удаляется
+     * старый адрес: содержимое все время доступно по адресу, который хранится в таблице.
+     */
+    @Override
+    public boolean relocate(File file) {
+        var name = getBlobName(file);
+        if (file.getPath().equals(blobStore.locate(name))) {
+            return false;
+        }
+        synchronized (lockFor(name)) {
+            var current = fileRepository.findById(file.getId());
+            if (current.isEmpty()) {
+                return false;
+            }
+            var source = current.get().getPath();
+            var target = blobStore.relocate(source);
+            if (target.isEmpty()) {
+                return false;
+            }
+            imageVariantService.moveVariants(Path.of(source), Path.of(target.get()));
+            fileRepository.updatePath(file.getId(), target.get());
+            blobStore.delete(source);
+            return true;
         }
     }
 
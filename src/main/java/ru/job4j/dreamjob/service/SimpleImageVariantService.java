@@ -0,0 +1,200 @@
+package ru.job4j.dreamjob.service;
+
+import jakarta.annotation.PreDestroy;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import ru.job4j.dreamjob.dto.ImageSize;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.Color;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Уменьшенные копии изображений строятся в фоне на ограниченном пуле потоков, каждый файл не больше
+ * одного раза одновременно. Если очередь переполнена, задача отклоняется с предупреждением в логе,
+ * а копия будет построена при следующем запросе к ней; пока копии нет, клиенту отдается оригинал.
+ */
+@Service
+@ThreadSafe
+public class SimpleImageVariantService implements ImageVariantService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SimpleImageVariantService.class.getName());
+
+    private static final String FORMAT = "jpg";
+
+    /* от большего размера к меньшему: каждая следующая копия строится из предыдущей */
+    private static final List<ImageSize> VARIANTS = List.of(ImageSize.MEDIUM, ImageSize.THUMB);
+
+    private final ThreadPoolExecutor executor;
+
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+
+    public SimpleImageVariantService(@Value("${file.variants.threads}") int threads,
+                                     @Value("${file.variants.queue-capacity}") int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    var thread = new Thread(runnable, "image-variants");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public void generate(Path source, Resource content, Runnable onGenerated) {
+        if (!pending.add(source)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    if (generateVariants(source, content)) {
+                        onGenerated.run();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Не удалось построить уменьшенные копии для {}", source, e);
+                } finally {
+                    pending.remove(source);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(source);
+            LOG.warn("Очередь построения копий заполнена, копии для {} будут построены при следующем запросе", source);
+        }
+    }
+
+    private boolean generateVariants(Path source, Resource content) throws IOException {
+        var image = read(content, VARIANTS.get(0).getMaxDimension());
+        if (image == null) {
+            return false;
+        }
+        for (var size : VARIANTS) {
+            image = scale(image, size.getMaxDimension());
+            write(image, getVariantPath(source, size));
+        }
+        return true;
+    }
+
+    /* исходник читается с прореживанием, чтобы крупная фотография не раскрывалась в память целиком */
+    private BufferedImage read(Resource content, int targetDimension) throws IOException {
+        try (var stream = content.getInputStream();
+             var input = new MemoryCacheImageInputStream(stream)) {
+            var readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            var reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                var largest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                var step = Math.max(1, largest / (targetDimension * 2));
+                var param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /* изображение меньше заданного размера не увеличивается, а только перекодируется в JPEG */
+    private BufferedImage scale(BufferedImage image, int maxDimension) {
+        var ratio = Math.min(1.0, (double) maxDimension / Math.max(image.getWidth(), image.getHeight()));
+        var width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        var height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+        var result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var graphics = result.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return result;
+    }
+
+    private void write(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        var temp = Files.createTempFile(target.getParent(), "variant", ".tmp");
+        try {
+            ImageIO.write(image, FORMAT, temp.toFile());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public Optional<Path> findVariant(Path source, ImageSize size) {
+        if (size == ImageSize.ORIGINAL) {
+            return Optional.empty();
+        }
+        var path = getVariantPath(source, size);
+        return Files.exists(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    @Override
+    public Optional<Path> findSource(Path variant) {
+        var name = variant.getFileName().toString();
+        for (var size : VARIANTS) {
+            var suffix = "-" + size.getSuffix() + "." + FORMAT;
+            if (name.endsWith(suffix)) {
+                return Optional.of(variant.resolveSibling(name.substring(0, name.length() - suffix.length())));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /* пока копия переносится, она не находится ни по одному пути, и клиенту отдается оригинал */
+    @Override
+    public void moveVariants(Path source, Path target) {
+        try {
+            for (var size : VARIANTS) {
+                var variant = getVariantPath(source, size);
+                if (Files.exists(variant)) {
+                    Files.move(variant, getVariantPath(target, size), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void deleteVariants(Path source) {
+        try {
+            for (var size : VARIANTS) {
+                Files.deleteIfExists(getVariantPath(source, size));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Path getVariantPath(Path source, ImageSize size) {
+        return source.resolveSibling(source.getFileName() + "-" + size.getSuffix() + "." + FORMAT);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,221 @@
+package ru.job4j.dreamjob.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.job4j.dreamjob.dto.ImportError;
+import ru.job4j.dreamjob.dto.ImportReport;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.PartialSaveException;
+import ru.job4j.dreamjob.repository.VacancyRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Импорт читает поток по одной записи и копит вакансии в порции по vacancy.import.chunk-size,
+ * каждая порция сохраняется одним пакетным INSERT в своей транзакции, а при шардах - своим пакетом
+ * и своей транзакцией в каждом шарде. Вакансии, которые не сохранились, сохраняются по одной, чтобы
+ * в отчет попали только действительно ошибочные записи; уже зафиксированные части повторно не пишутся.
+ * Поэтому порция сохраняется вне единицы работы: иначе доля основной БД откатывалась бы вместе с ней.
+ * Импортированные вакансии сохраняются без изображения.
+ */
+@Service
+@ThreadSafe
+public class SimpleVacancyImportService implements VacancyImportService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SimpleVacancyImportService.class.getName());
+
+    private final VacancyRepository vacancyRepository;
+
+    private final CityService cityService;
+
+    private final ObjectMapper objectMapper;
+
+    private final int chunkSize;
+
+    private final int maxErrors;
+
+    public SimpleVacancyImportService(VacancyRepository cachingVacancyRepository, CityService cityService,
+                                      ObjectMapper objectMapper,
+                                      @Value("${vacancy.import.chunk-size}") int chunkSize,
+                                      @Value("${vacancy.import.max-errors}") int maxErrors) {
+        this.vacancyRepository = cachingVacancyRepository;
+        this.cityService = cityService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    @Override
+    public ImportReport importCsv(InputStream input) throws IOException {
+        var csv = new CsvReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+        var vacancyImport = new Import();
+        var header = csv.next();
+        if (header == null) {
+            return vacancyImport.finish();
+        }
+        var names = header.stream().map(name -> name.strip().toLowerCase(Locale.ROOT)).toList();
+        var row = 0;
+        for (var record = csv.next(); record != null; record = csv.next()) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            row++;
+            if (record.size() != names.size()) {
+                vacancyImport.reject(row, "ожидалось полей: " + names.size() + ", получено: " + record.size());
+                continue;
+            }
+            var fields = new HashMap<String, String>();
+            for (int i = 0; i < names.size(); i++) {
+                fields.put(names.get(i), record.get(i));
+            }
+            vacancyImport.accept(row, fields);
+        }
+        return vacancyImport.finish();
+    }
+
+    @Override
+    public ImportReport importJson(InputStream input) throws IOException {
+        var vacancyImport = new Import();
+        var row = 0;
+        try (var parser = objectMapper.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                vacancyImport.reject(row, "ожидался массив вакансий");
+                return vacancyImport.finish();
+            }
+            while (true) {
+                row++;
+                var token = parser.nextToken();
+                if (token == JsonToken.END_ARRAY) {
+                    break;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    vacancyImport.reject(row, "ожидался объект вакансии");
+                    continue;
+                }
+                var fields = new HashMap<String, String>();
+                JsonNode node = objectMapper.readTree(parser);
+                node.fields().forEachRemaining(field -> fields.put(field.getKey().toLowerCase(Locale.ROOT),
+                        field.getValue().isNull() ? null : field.getValue().asText()));
+                vacancyImport.accept(row, fields);
+            }
+        } catch (JsonProcessingException e) {
+            /* уже сохраненные порции остаются, остаток документа не читается */
+            vacancyImport.reject(row, "документ разобран не до конца: " + e.getOriginalMessage());
+        }
+        return vacancyImport.finish();
+    }
+
+    /* состояние одной загрузки, используется одним потоком */
+    private final class Import {
+
+        private final List<Vacancy> chunk = new ArrayList<>(chunkSize);
+
+        private final List<Integer> chunkRows = new ArrayList<>(chunkSize);
+
+        private final List<ImportError> errors = new ArrayList<>();
+
+        private int imported;
+
+        private int failed;
+
+        void accept(int row, Map<String, String> fields) {
+            var title = fields.get("title");
+            var description = fields.get("description");
+            var cityId = fields.get("cityid");
+            var visible = fields.get("visible");
+            if (title == null || title.isBlank()) {
+                reject(row, "не задано название");
+            } else if (description == null || description.isBlank()) {
+                reject(row, "не задано описание");
+            } else if (cityId == null || !cityId.strip().matches("\\d{1,9}")) {
+                reject(row, "cityId должен быть числом");
+            } else if (cityService.findById(Integer.parseInt(cityId.strip())).isEmpty()) {
+                reject(row, "город " + cityId.strip() + " не найден");
+            } else if (visible != null && !visible.isBlank() && !"true".equalsIgnoreCase(visible.strip())
+                    && !"false".equalsIgnoreCase(visible.strip())) {
+                reject(row, "visible должен быть true или false");
+            } else {
+                chunk.add(new Vacancy(0, title.strip(), description.strip(), LocalDateTime.now(),
+                        visible == null || visible.isBlank() || Boolean.parseBoolean(visible.strip()),
+                        Integer.parseInt(cityId.strip()), 0));
+                chunkRows.add(row);
+                if (chunk.size() >= chunkSize) {
+                    flush();
+                }
+            }
+        }
+
+        void reject(int row, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ImportError(row, message));
+            }
+        }
+
+        ImportReport finish() {
+            flush();
+            return new ImportReport(imported, failed, List.copyOf(errors));
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                vacancyRepository.saveAll(chunk);
+                imported += chunk.size();
+            } catch (PartialSaveException e) {
+                LOG.warn("Из порции импорта не сохранились {} вакансий из {}, они сохраняются по одной",
+                        e.getFailed().size(), chunk.size(), e);
+                imported += e.getSaved().size();
+                saveEach(e.getFailed());
+            } catch (RuntimeException e) {
+                LOG.warn("Порция импорта из {} вакансий не сохранилась, вакансии сохраняются по одной", chunk.size(), e);
+                saveEach(chunk);
+            }
+            chunk.clear();
+            chunkRows.clear();
+        }
+
+        /* вакансии сравниваются по ссылке: у несохраненных нет id, по которому их можно различить */
+        private void saveEach(Collection<Vacancy> vacancies) {
+            var pending = Collections.newSetFromMap(new IdentityHashMap<Vacancy, Boolean>());
+            pending.addAll(vacancies);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (pending.contains(chunk.get(i))) {
+                    saveOne(chunkRows.get(i), chunk.get(i));
+                }
+            }
+        }
+
+        private void saveOne(int row, Vacancy vacancy) {
+            try {
+                vacancyRepository.save(vacancy);
+                imported++;
+            } catch (RuntimeException e) {
+                reject(row, "не удалось сохранить: " + e.getMessage());
+            }
+        }
+    }
+}
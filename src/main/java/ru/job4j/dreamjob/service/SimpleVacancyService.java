@@ -2,7 +2,12 @@ package ru.job4j.dreamjob.service;
 
 import net.jcip.annotations.ThreadSafe;
 import org.springframework.stereotype.Service;
+import ru.job4j.dreamjob.datasource.UnitOfWork;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancySummary;
+import ru.job4j.dreamjob.model.City;
 import ru.job4j.dreamjob.model.File;
 import ru.job4j.dreamjob.model.Vacancy;
 import ru.job4j.dreamjob.repository.VacancyRepository;
@@ -18,9 +23,16 @@ public class SimpleVacancyService implements VacancyService {
 
     private final FileService fileService;
 
-    public SimpleVacancyService(VacancyRepository sql2oVacancyRepository, FileService fileService) {
-        this.vacancyRepository = sql2oVacancyRepository;
+    private final CityService cityService;
+
+    private final UnitOfWork unitOfWork;
+
+    public SimpleVacancyService(VacancyRepository cachingVacancyRepository, FileService fileService,
+                                CityService cityService, UnitOfWork unitOfWork) {
+        this.vacancyRepository = cachingVacancyRepository;
         this.fileService = fileService;
+        this.cityService = cityService;
+        this.unitOfWork = unitOfWork;
     }
 
     @Override
@@ -34,29 +46,37 @@ public class SimpleVacancyService implements VacancyService {
         vacancy.setFileId(file.getId());
     }
 
+    /*
+     * запись вакансии и ссылка на ее файл удаляются одной транзакцией, file_id возвращает сам DELETE;
+     * сам файл удаляется с диска позже, из очереди file_deletions
+     */
     @Override
     public boolean deleteById(int id) {
-        boolean result = false;
-        var vacancyOptional = findById(id);
-        if (vacancyOptional.isPresent()) {
-            result = vacancyRepository.deleteById(id);
-            fileService.deleteById(vacancyOptional.get().getFileId());
-        }
-        return result;
+        return unitOfWork.execute(() -> {
+            var fileId = vacancyRepository.deleteAndGetFileId(id);
+            fileId.ifPresent(fileService::deleteById);
+            return fileId.isPresent();
+        });
     }
 
     @Override
     public boolean update(Vacancy vacancy, FileDto image) {
-        var isNewFileEmpty = image.getContent().length == 0;
+        var isNewFileEmpty = image.getSize() == 0;
         if (isNewFileEmpty) {
             return vacancyRepository.update(vacancy);
         }
-        /* если передан новый не пустой файл, то старый удаляем, а новый сохраняем */
-        var oldFileId = vacancy.getFileId();
+        /*
+         * если передан новый не пустой файл, то старый удаляем, а новый сохраняем;
+         * новый файл сохраняется до транзакции, чтобы одинаковые загрузки из разных запросов
+         * находили уже зафиксированную запись files по хешу
+         */
         saveNewFile(vacancy, image);
-        var isUpdated = vacancyRepository.update(vacancy);
-        fileService.deleteById(oldFileId);
-        return isUpdated;
+        return unitOfWork.execute(() -> {
+            var oldFileId = vacancyRepository.updateAndGetOldFileId(vacancy);
+            /* если запись не обновилась, ссылка снимается с только что сохраненного файла, а старый остается */
+            fileService.deleteById(oldFileId.orElse(vacancy.getFileId()));
+            return oldFileId.isPresent();
+        });
     }
 
     @Override
@@ -68,4 +88,14 @@ public class SimpleVacancyService implements VacancyService {
     public Collection<Vacancy> findAll() {
         return vacancyRepository.findAll();
     }
+
+    /* названия городов берутся из справочника в памяти, поэтому страница из N строк не дает N запросов */
+    @Override
+    public Page<VacancySummary> findSummaryPage(PageCursor cursor, int limit) {
+        return vacancyRepository.findSummaryPage(cursor, limit).map(this::withCityName);
+    }
+
+    private VacancySummary withCityName(VacancySummary vacancy) {
+        return vacancy.withCityName(cityService.findById(vacancy.getCityId()).map(City::getName).orElse(null));
+    }
 }
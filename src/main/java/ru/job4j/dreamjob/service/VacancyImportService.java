@@ -0,0 +1,19 @@
+package ru.job4j.dreamjob.service;
+
+import ru.job4j.dreamjob.dto.ImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Массовая загрузка вакансий. Записи читаются из потока по одной и сохраняются порциями,
+ * ошибочные записи попадают в отчет и не прерывают загрузку остальных.
+ */
+public interface VacancyImportService {
+
+    /* CSV в UTF-8 с заголовком title,description,cityId,visible; visible можно не указывать */
+    ImportReport importCsv(InputStream input) throws IOException;
+
+    /* JSON-массив объектов с теми же полями */
+    ImportReport importJson(InputStream input) throws IOException;
+}
@@ -0,0 +1,30 @@
+package ru.job4j.dreamjob.storage;
+
+import org.springframework.core.io.Resource;
+
+public class Blob {
+
+    private final long size;
+
+    private final long lastModified;
+
+    private final Resource resource;
+
+    public Blob(long size, long lastModified, Resource resource) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.resource = resource;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+}
@@ -0,0 +1,18 @@
+package ru.job4j.dreamjob.storage;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+public interface BlobStore {
+
+    /* временный файл source забирается в хранилище и после вызова больше не существует */
+    String put(String name, Path source);
+
+    String locate(String name);
+
+    Optional<Blob> find(String location);
+
+    Optional<String> relocate(String location);
+
+    void delete(String location);
+}
@@ -0,0 +1,95 @@
+package ru.job4j.dreamjob.storage;
+
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+
+/**
+ * Каждый блоб - отдельный файл в раскладке {@link FanOutLayout}.
+ */
+public class DirectoryBlobStore implements BlobStore {
+
+    private final Path root;
+
+    public DirectoryBlobStore(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public String locate(String name) {
+        return resolve(name).toString();
+    }
+
+    private Path resolve(String name) {
+        return FanOutLayout.resolve(root, name);
+    }
+
+    @Override
+    public String put(String name, Path source) {
+        var target = resolve(name);
+        try {
+            Files.createDirectories(target.getParent());
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteIfExists(source);
+            throw new RuntimeException(e);
+        }
+        return target.toString();
+    }
+
+    @Override
+    public Optional<Blob> find(String location) {
+        var path = Path.of(location);
+        try {
+            var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return Optional.of(new Blob(attributes.size(), attributes.lastModifiedTime().toMillis(),
+                    new FileSystemResource(path)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /* вместо копирования создается жесткая ссылка, а на файловых системах без них содержимое копируется */
+    @Override
+    public Optional<String> relocate(String location) {
+        var source = Path.of(location);
+        var target = resolve(source.getFileName().toString());
+        if (source.equals(target) || Files.notExists(source)) {
+            return Optional.empty();
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            Files.deleteIfExists(target);
+            try {
+                Files.createLink(target, source);
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                Files.copy(source, target);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return Optional.of(target.toString());
+    }
+
+    @Override
+    public void delete(String location) {
+        deleteIfExists(Path.of(location));
+    }
+
+    private void deleteIfExists(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
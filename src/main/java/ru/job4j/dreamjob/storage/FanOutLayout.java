@@ -0,0 +1,30 @@
+package ru.job4j.dreamjob.storage;
+
+import java.nio.file.Path;
+
+/**
+ * Раскладка файлов хранилища по двум уровням подкаталогов из первых символов имени:
+ * {@code 3f51...} хранится как {@code root/3f/51/3f51...}. Имена файлов начинаются с шестнадцатеричного
+ * хеша или UUID, поэтому в каждом каталоге оказывается не больше 256 подкаталогов,
+ * а файлы распределяются по ним равномерно.
+ */
+public final class FanOutLayout {
+
+    private static final int LEVELS = 2;
+
+    private static final int WIDTH = 2;
+
+    private FanOutLayout() {
+    }
+
+    public static Path resolve(Path root, String name) {
+        if (name.length() < LEVELS * WIDTH) {
+            return root.resolve(name);
+        }
+        var path = root;
+        for (int level = 0; level < LEVELS; level++) {
+            path = path.resolve(name.substring(level * WIDTH, (level + 1) * WIDTH));
+        }
+        return path.resolve(name);
+    }
+}
@@ -0,0 +1,473 @@
+package ru.job4j.dreamjob.storage;
+
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@ThreadSafe
+public class SegmentBlobStore implements BlobStore, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentBlobStore.class.getName());
+
+    private static final int MAGIC = 0x444A4253;
+
+    private static final byte PUT = 1;
+
+    private static final byte DELETE = 2;
+
+    /*
+     * запись сегмента: магическое число, тип (PUT или надгробие DELETE), время записи и длина имени,
+     * за ними имя, длина содержимого и содержимое
+     */
+    private static final int FIXED_HEADER_SIZE = Integer.BYTES + Byte.BYTES + Long.BYTES + Short.BYTES;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private final Path directory;
+
+    private final DirectoryBlobStore fallback;
+
+    private final long maxSegmentSize;
+
+    private final long maxBlobSize;
+
+    private final double compactionThreshold;
+
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+
+    /* запись в сегменты, изменение индекса, счетчиков сегментов и copyBuffer идут под этой блокировкой */
+    private final Object writeLock = new Object();
+
+    private final ScheduledExecutorService compactor;
+
+    private final ByteBuffer copyBuffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+
+    private Segment active;
+
+    public SegmentBlobStore(Path directory, DirectoryBlobStore fallback, long maxSegmentSize, long maxBlobSize,
+                            double compactionThreshold, Duration compactionInterval) {
+        this.directory = directory;
+        this.fallback = fallback;
+        this.maxSegmentSize = maxSegmentSize;
+        this.maxBlobSize = maxBlobSize;
+        this.compactionThreshold = compactionThreshold;
+        try {
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "segment-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var interval = compactionInterval.toMillis();
+        compactor.scheduleWithFixedDelay(this::compactQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(directory);
+        try (var paths = Files.list(directory)) {
+            for (var id : paths.map(this::segmentId).filter(id -> id > 0).sorted().toList()) {
+                scan(id);
+            }
+        }
+        if (segments.isEmpty() || segments.lastEntry().getValue().size >= maxSegmentSize) {
+            active = createSegment(segments.isEmpty() ? 1 : segments.lastKey() + 1);
+        } else {
+            active = segments.lastEntry().getValue();
+            active.channel = FileChannel.open(active.path, StandardOpenOption.WRITE);
+        }
+        LOG.info("Загружено сегментов: {}, блобов: {}", segments.size(), index.size());
+    }
+
+    private void scan(int id) throws IOException {
+        var segment = new Segment(id, segmentPath(id));
+        segments.put(id, segment);
+        try (var channel = FileChannel.open(segment.path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var size = channel.size();
+            var record = readRecord(channel, 0, size);
+            while (record != null) {
+                if (record.type == PUT) {
+                    replace(record.name, new Entry(id, record.dataOffset, record.length, record.timestamp, record.size));
+                    segment.live += record.size;
+                } else {
+                    remove(record.name);
+                }
+                segment.size = record.position + record.size;
+                record = readRecord(channel, segment.size, size);
+            }
+            if (segment.size < size) {
+                LOG.warn("Сегмент {} обрезан с {} до {} байт", segment.path, size, segment.size);
+                channel.truncate(segment.size);
+            }
+        }
+    }
+
+    private Record readRecord(FileChannel channel, long position, long size) throws IOException {
+        if (size - position < FIXED_HEADER_SIZE) {
+            return null;
+        }
+        var header = readFully(channel, position, FIXED_HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            return null;
+        }
+        var type = header.get();
+        var timestamp = header.getLong();
+        var nameLength = Short.toUnsignedInt(header.getShort());
+        var headerSize = FIXED_HEADER_SIZE + nameLength + Long.BYTES;
+        if (size - position < headerSize) {
+            return null;
+        }
+        var rest = readFully(channel, position + FIXED_HEADER_SIZE, nameLength + Long.BYTES);
+        var name = new byte[nameLength];
+        rest.get(name);
+        var length = rest.getLong();
+        if (length < 0 || size - position - headerSize < length) {
+            return null;
+        }
+        return new Record(type, new String(name, StandardCharsets.UTF_8), timestamp, position,
+                position + headerSize, length);
+    }
+
+    private ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец сегмента");
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public String put(String name, Path source) {
+        try (var input = FileChannel.open(source, StandardOpenOption.READ)) {
+            var length = input.size();
+            if (length > maxBlobSize) {
+                input.close();
+                return fallback.put(name, source);
+            }
+            synchronized (writeLock) {
+                replace(name, append(PUT, name, System.currentTimeMillis(), input, 0, length));
+            }
+            Files.delete(source);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return locate(name);
+    }
+
+    @Override
+    public String locate(String name) {
+        return fallback.locate(name);
+    }
+
+    @Override
+    public Optional<Blob> find(String location) {
+        var name = nameOf(location);
+        var entry = index.get(name);
+        if (entry == null) {
+            return fallback.find(location);
+        }
+        return Optional.of(new Blob(entry.length, entry.timestamp,
+                new SegmentResource(this, name, entry.length, entry.timestamp)));
+    }
+
+    @Override
+    public Optional<String> relocate(String location) {
+        return index.containsKey(nameOf(location)) ? Optional.empty() : fallback.relocate(location);
+    }
+
+    @Override
+    public void delete(String location) {
+        var name = nameOf(location);
+        synchronized (writeLock) {
+            if (remove(name)) {
+                try {
+                    append(DELETE, name, System.currentTimeMillis(), null, 0, 0);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        fallback.delete(location);
+    }
+
+    boolean contains(String name) {
+        return index.containsKey(name);
+    }
+
+    InputStream open(String name) throws IOException {
+        try {
+            return openEntry(name);
+        } catch (NoSuchFileException e) {
+            return openEntry(name);
+        }
+    }
+
+    private InputStream openEntry(String name) throws IOException {
+        var entry = index.get(name);
+        if (entry == null) {
+            throw new FileNotFoundException(name);
+        }
+        var channel = FileChannel.open(segmentPath(entry.segment), StandardOpenOption.READ);
+        return new SegmentInputStream(channel, entry.offset, entry.length);
+    }
+
+    private Entry append(byte type, String name, long timestamp, FileChannel source, long sourcePosition,
+                         long length) throws IOException {
+        var nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        var headerSize = FIXED_HEADER_SIZE + nameBytes.length + Long.BYTES;
+        rollIfFull(headerSize + length);
+        var header = ByteBuffer.allocate(headerSize)
+                .putInt(MAGIC).put(type).putLong(timestamp).putShort((short) nameBytes.length)
+                .put(nameBytes).putLong(length)
+                .flip();
+        var start = active.size;
+        while (header.hasRemaining()) {
+            active.channel.write(header, start + header.position());
+        }
+        copy(source, sourcePosition, start + headerSize, length);
+        active.size = start + headerSize + length;
+        if (type == PUT) {
+            active.live += headerSize + length;
+        }
+        return new Entry(active.id, start + headerSize, length, timestamp, headerSize + length);
+    }
+
+    private void copy(FileChannel source, long sourcePosition, long targetPosition, long length) throws IOException {
+        var copied = 0L;
+        while (copied < length) {
+            copyBuffer.clear().limit((int) Math.min(copyBuffer.capacity(), length - copied));
+            while (copyBuffer.hasRemaining()) {
+                if (source.read(copyBuffer, sourcePosition + copied + copyBuffer.position()) < 0) {
+                    throw new IOException("Неожиданный конец файла");
+                }
+            }
+            copyBuffer.flip();
+            while (copyBuffer.hasRemaining()) {
+                active.channel.write(copyBuffer, targetPosition + copied + copyBuffer.position());
+            }
+            copied += copyBuffer.limit();
+        }
+    }
+
+    /* закрываемый сегмент сбрасывается на диск: сжатие удаляет старые сегменты, полагаясь на копии в новых */
+    private void rollIfFull(long recordSize) throws IOException {
+        if (active.size == 0 || active.size + recordSize <= maxSegmentSize) {
+            return;
+        }
+        active.channel.force(false);
+        active.channel.close();
+        active.channel = null;
+        active = createSegment(active.id + 1);
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        var segment = new Segment(id, segmentPath(id));
+        segment.channel = FileChannel.open(segment.path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private void replace(String name, Entry entry) {
+        var previous = index.put(name, entry);
+        if (previous != null) {
+            segments.get(previous.segment).live -= previous.recordSize;
+        }
+    }
+
+    private boolean remove(String name) {
+        var previous = index.remove(name);
+        if (previous == null) {
+            return false;
+        }
+        segments.get(previous.segment).live -= previous.recordSize;
+        return true;
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Не удалось сжать сегменты", e);
+        }
+    }
+
+    public void compact() throws IOException {
+        for (var segment : findSparseSegments()) {
+            compact(segment);
+        }
+    }
+
+    private List<Segment> findSparseSegments() {
+        synchronized (writeLock) {
+            return segments.values().stream()
+                    .filter(segment -> segment != active)
+                    .filter(segment -> segment.size == 0 || (double) segment.live / segment.size < compactionThreshold)
+                    .toList();
+        }
+    }
+
+    /* в самом старом сегменте надгробия отбрасываются: удаленного ими блоба уже нигде нет */
+    private void compact(Segment segment) throws IOException {
+        var oldest = segment.id == segments.firstKey();
+        var copied = 0L;
+        try (var channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+            var record = readRecord(channel, 0, segment.size);
+            while (record != null) {
+                copied += copy(segment, channel, record, oldest);
+                record = readRecord(channel, record.position + record.size, segment.size);
+            }
+        }
+        synchronized (writeLock) {
+            active.channel.force(false);
+            segments.remove(segment.id);
+        }
+        Files.delete(segment.path);
+        LOG.info("Сегмент {} сжат, перенесено {} байт", segment.path, copied);
+    }
+
+    private long copy(Segment segment, FileChannel channel, Record record, boolean oldest) throws IOException {
+        synchronized (writeLock) {
+            if (record.type == PUT) {
+                var current = index.get(record.name);
+                if (current == null || current.segment != segment.id || current.offset != record.dataOffset) {
+                    return 0;
+                }
+                replace(record.name, append(PUT, record.name, record.timestamp, channel, record.dataOffset,
+                        record.length));
+                return record.size;
+            }
+            if (!oldest && !index.containsKey(record.name)) {
+                append(DELETE, record.name, record.timestamp, null, 0, 0);
+                return record.size;
+            }
+            return 0;
+        }
+    }
+
+    private String nameOf(String location) {
+        return Path.of(location).getFileName().toString();
+    }
+
+    private Path segmentPath(int id) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private int segmentId(Path path) {
+        var name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        synchronized (writeLock) {
+            active.channel.force(false);
+            active.channel.close();
+        }
+    }
+
+    private static final class Entry {
+
+        private final int segment;
+
+        private final long offset;
+
+        private final long length;
+
+        private final long timestamp;
+
+        private final long recordSize;
+
+        private Entry(int segment, long offset, long length, long timestamp, long recordSize) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.timestamp = timestamp;
+            this.recordSize = recordSize;
+        }
+    }
+
+    private static final class Record {
+
+        private final byte type;
+
+        private final String name;
+
+        private final long timestamp;
+
+        private final long position;
+
+        private final long dataOffset;
+
+        private final long length;
+
+        private final long size;
+
+        private Record(byte type, String name, long timestamp, long position, long dataOffset, long length) {
+            this.type = type;
+            this.name = name;
+            this.timestamp = timestamp;
+            this.position = position;
+            this.dataOffset = dataOffset;
+            this.length = length;
+            this.size = dataOffset - position + length;
+        }
+    }
+
+    private static final class Segment {
+
+        private final int id;
+
+        private final Path path;
+
+        private long size;
+
+        private long live;
+
+        private FileChannel channel;
+
+        private Segment(int id, Path path) {
+            this.id = id;
+            this.path = path;
+        }
+    }
+}
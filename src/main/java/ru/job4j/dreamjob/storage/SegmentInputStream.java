@@ -0,0 +1,79 @@
+package ru.job4j.dreamjob.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Поток по участку сегмента. Читает позиционным чтением, не сдвигая позицию канала,
+ * а skip просто переносит позицию, поэтому запросы с Range не читают пропускаемые байты.
+ */
+class SegmentInputStream extends InputStream {
+
+    private final FileChannel channel;
+
+    private final long end;
+
+    private long position;
+
+    SegmentInputStream(FileChannel channel, long offset, long length) {
+        this.channel = channel;
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        var single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        var remaining = end - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        var read = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, remaining)), position);
+        if (read < 0) {
+            return -1;
+        }
+        position += read;
+        return read;
+    }
+
+    /* блоб целиком помещается в массив: читается сразу в массив нужного размера без промежуточных буферов */
+    @Override
+    public byte[] readAllBytes() throws IOException {
+        var result = new byte[(int) Math.max(0, end - position)];
+        var buffer = ByteBuffer.wrap(result);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец сегмента");
+            }
+        }
+        position = end;
+        return result;
+    }
+
+    @Override
+    public long skip(long count) {
+        var skipped = Math.max(0, Math.min(count, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.job4j.dreamjob.storage;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Блоб внутри сегмента. Положение блоба берется из индекса при каждом открытии,
+ * поэтому ресурс остается рабочим и после того, как сжатие перенесло блоб в другой сегмент.
+ */
+class SegmentResource extends AbstractResource {
+
+    private final SegmentBlobStore store;
+
+    private final String name;
+
+    private final long length;
+
+    private final long lastModified;
+
+    SegmentResource(SegmentBlobStore store, String name, long length, long lastModified) {
+        this.store = store;
+        this.name = name;
+        this.length = length;
+        this.lastModified = lastModified;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return store.open(name);
+    }
+
+    @Override
+    public boolean exists() {
+        return store.contains(name);
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public long lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String getFilename() {
+        return name;
+    }
+
+    @Override
+    public String getDescription() {
+        return "segment blob [" + name + "]";
+    }
+}
@@ -0,0 +1,111 @@
+package ru.job4j.dreamjob.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.job4j.dreamjob.storage.BlobStore;
+import ru.job4j.dreamjob.storage.DirectoryBlobStore;
+import ru.job4j.dreamjob.storage.SegmentBlobStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Пропускная способность сохранения и чтения небольших изображений
+ * для хранения отдельными файлами и в сегментах.
+ * Запускается методом main после mvn test-compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlobStoreBenchmark {
+
+    private static final int STORED_BLOBS = 10_000;
+
+    @Param({"directory", "segment"})
+    private String storage;
+
+    @Param({"16384", "131072"})
+    private int blobSize;
+
+    private Path root;
+
+    private BlobStore store;
+
+    private byte[] content;
+
+    private String[] locations;
+
+    @Setup
+    public void createStore() throws IOException {
+        root = Files.createTempDirectory("blob-benchmark");
+        var directoryStore = new DirectoryBlobStore(root.resolve("files"));
+        store = "directory".equals(storage) ? directoryStore
+                : new SegmentBlobStore(root.resolve("segments"), directoryStore,
+                256L * 1024 * 1024, 512 * 1024, 0.5, Duration.ofHours(1));
+        content = new byte[blobSize];
+        ThreadLocalRandom.current().nextBytes(content);
+        locations = new String[STORED_BLOBS];
+        for (int i = 0; i < STORED_BLOBS; i++) {
+            locations[i] = put();
+        }
+    }
+
+    @TearDown
+    public void deleteStore() throws IOException {
+        if (store instanceof Closeable closeable) {
+            closeable.close();
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /* загрузка всегда сначала пишется во временный файл, поэтому его запись входит в замер для обоих вариантов */
+    @Benchmark
+    public String put() throws IOException {
+        var source = Files.write(Files.createTempFile(root, "upload", ".tmp"), content);
+        var name = new byte[32];
+        ThreadLocalRandom.current().nextBytes(name);
+        return store.put(HexFormat.of().formatHex(name), source);
+    }
+
+    @Benchmark
+    public int read() throws IOException {
+        var location = locations[ThreadLocalRandom.current().nextInt(locations.length)];
+        try (var input = store.find(location).get().getResource().getInputStream()) {
+            return input.readAllBytes().length;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BlobStoreBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,106 @@
+package ru.job4j.dreamjob.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.job4j.dreamjob.storage.FanOutLayout;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Время создания и открытия файла в зависимости от числа файлов в хранилище
+ * для плоского каталога и для раскладки {@link FanOutLayout}.
+ * Запускается методом main после mvn test-compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileLayoutBenchmark {
+
+    @Param({"flat", "fan-out"})
+    private String layout;
+
+    @Param({"1000", "100000", "500000"})
+    private int files;
+
+    private Path root;
+
+    private String[] names;
+
+    @Setup
+    public void createFiles() throws IOException {
+        root = Files.createTempDirectory("layout-benchmark");
+        names = new String[files];
+        for (int i = 0; i < files; i++) {
+            names[i] = randomName();
+            var path = resolve(names[i]);
+            Files.createDirectories(path.getParent());
+            Files.createFile(path);
+        }
+    }
+
+    @TearDown
+    public void deleteFiles() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long open() throws IOException {
+        var name = names[ThreadLocalRandom.current().nextInt(names.length)];
+        try (var channel = FileChannel.open(resolve(name))) {
+            return channel.size();
+        }
+    }
+
+    /* файл сразу удаляется, чтобы число файлов не росло за время замера */
+    @Benchmark
+    public void createAndDelete() throws IOException {
+        var path = resolve(randomName());
+        Files.createDirectories(path.getParent());
+        Files.createFile(path);
+        Files.delete(path);
+    }
+
+    private Path resolve(String name) {
+        return "flat".equals(layout) ? root.resolve(name) : FanOutLayout.resolve(root, name);
+    }
+
+    private static String randomName() {
+        var bytes = new byte[32];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FileLayoutBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
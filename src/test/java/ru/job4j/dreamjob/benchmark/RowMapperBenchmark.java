@@ -0,0 +1,127 @@
+package ru.job4j.dreamjob.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.datasource.ConnectionPoolProperties;
+import ru.job4j.dreamjob.datasource.StatementTimingDataSource;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.RowMappers;
+import ru.job4j.dreamjob.repository.Sql2oVacancyRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение всех вакансий через рефлексивный маппинг Sql2o с COLUMN_MAPPING (как было раньше)
+ * и через {@link RowMappers#VACANCY}, в том числе поверх {@link StatementTimingDataSource}. Результат в строках в секунду, с профилировщиком gc
+ * показатель gc.alloc.rate.norm дает байты на строку. База H2 в памяти, поэтому цена чтения
+ * с диска и сети в замер не входит. Запускается методом main после mvn test-compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@OperationsPerInvocation(RowMapperBenchmark.ROWS)
+public class RowMapperBenchmark {
+
+    static final int ROWS = 1000;
+
+    private static final Map<String, String> COLUMN_MAPPING = Map.of(
+            "id", "id",
+            "title", "title",
+            "description", "description",
+            "creation_date", "creationDate",
+            "visible", "visible",
+            "city_id", "cityId",
+            "file_id", "fileId"
+    );
+
+    private Sql2o sql2o;
+
+    private Sql2oVacancyRepository repository;
+
+    private Sql2oVacancyRepository timedRepository;
+
+    @Setup
+    public void createVacancies() {
+        var configuration = new DatasourceConfiguration();
+        var dataSource = configuration.connectionPool(
+                "jdbc:h2:mem:row-mappers;MODE=PostgreSQL;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1", "", "",
+                new ConnectionPoolProperties());
+        sql2o = configuration.databaseClient(dataSource);
+        repository = new Sql2oVacancyRepository(sql2o);
+        var statementTiming = new StatementTimingDataSource(dataSource, new SimpleMeterRegistry(),
+                Duration.ofHours(1), List.of("password"));
+        timedRepository = new Sql2oVacancyRepository(configuration.databaseClient(statementTiming));
+        try (var connection = sql2o.open()) {
+            connection.createQuery("""
+                    CREATE TABLE vacancies (
+                        id serial PRIMARY KEY, title varchar NOT NULL, description varchar NOT NULL,
+                        creation_date timestamp, visible boolean NOT NULL, city_id int, file_id int
+                    )
+                    """).executeUpdate();
+        }
+        var description = "Описание вакансии ".repeat(10);
+        for (int i = 0; i < ROWS; i++) {
+            repository.save(new Vacancy(0, "Java Developer " + i, description,
+                    LocalDateTime.now().minusMinutes(i), i % 2 == 0, i % 3 + 1, i));
+        }
+    }
+
+    @TearDown
+    public void dropVacancies() {
+        try (var connection = sql2o.open()) {
+            connection.createQuery("DROP TABLE vacancies").executeUpdate();
+        }
+    }
+
+    @Benchmark
+    public List<Vacancy> reflective() {
+        try (var connection = sql2o.open()) {
+            return connection.createQuery("SELECT * FROM vacancies")
+                    .setColumnMappings(COLUMN_MAPPING)
+                    .executeAndFetch(Vacancy.class);
+        }
+    }
+
+    @Benchmark
+    public Collection<Vacancy> indexed() {
+        return repository.findAll();
+    }
+
+    /* то же чтение через StatementTimingDataSource: цена замера запроса и подсчета строк */
+    @Benchmark
+    public Collection<Vacancy> indexedTimed() {
+        return timedRepository.findAll();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RowMapperBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,92 @@
+package ru.job4j.dreamjob.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ByteBudgetCacheTest {
+
+    @Test
+    void whenBudgetExceededThenLeastRecentlyUsedEvicted() {
+        var cache = new ByteBudgetCache<Integer, String>(10, String::length);
+        cache.get(1, key -> Optional.of("aaaa"));
+        cache.get(2, key -> Optional.of("bbbb"));
+        cache.get(1, key -> Optional.of("never"));
+        cache.get(3, key -> Optional.of("cccc"));
+        assertThat(cache.usedBytes()).isEqualTo(8);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(cache.get(1, key -> Optional.of("reloaded"))).contains("aaaa");
+        assertThat(cache.get(2, key -> Optional.of("reloaded"))).contains("reloaded");
+    }
+
+    @Test
+    void whenValueHeavierThanBudgetThenNotCached() {
+        var cache = new ByteBudgetCache<Integer, String>(3, String::length);
+        cache.get(1, key -> Optional.of("abcd"));
+        assertThat(cache.size()).isZero();
+        assertThat(cache.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenAbsentThenNothingCached() {
+        var cache = new ByteBudgetCache<Integer, String>(10, String::length);
+        assertThat(cache.get(1, key -> Optional.empty())).isEmpty();
+        assertThat(cache.get(1, key -> Optional.of("a"))).contains("a");
+        assertThat(cache.hitCount()).isZero();
+    }
+
+    @Test
+    void whenInvalidatedThenLoadedAgain() {
+        var cache = new ByteBudgetCache<Integer, String>(10, String::length);
+        cache.get(1, key -> Optional.of("old"));
+        cache.invalidate(1);
+        assertThat(cache.get(1, key -> Optional.of("new"))).contains("new");
+        assertThat(cache.usedBytes()).isEqualTo(3);
+    }
+
+    @Test
+    void whenConcurrentMissesThenSingleLoad() throws Exception {
+        var cache = new ByteBudgetCache<Integer, String>(100, String::length);
+        var loads = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var pool = Executors.newFixedThreadPool(4);
+        var first = pool.submit(() -> cache.get(1, key -> {
+            loads.incrementAndGet();
+            started.countDown();
+            await(release);
+            return Optional.of("value");
+        }));
+        started.await();
+        var others = IntStream.range(0, 3)
+                .mapToObj(i -> pool.submit(() -> cache.get(1, key -> {
+                    loads.incrementAndGet();
+                    return Optional.of("other");
+                })))
+                .toList();
+        Thread.sleep(100);
+        release.countDown();
+        assertThat(first.get()).contains("value");
+        for (var other : others) {
+            assertThat(other.get()).contains("value");
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
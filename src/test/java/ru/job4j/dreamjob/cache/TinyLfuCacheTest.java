@@ -0,0 +1,71 @@
+package ru.job4j.dreamjob.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TinyLfuCacheTest {
+
+    @Test
+    void whenLoadedThenServedFromCache() {
+        var cache = new TinyLfuCache<Integer, String>(10, Duration.ofMinutes(1));
+        var loads = new AtomicInteger();
+        cache.get(1, key -> Optional.of("a" + loads.incrementAndGet()));
+        assertThat(cache.get(1, key -> Optional.of("a" + loads.incrementAndGet()))).contains("a1");
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.loadCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenTtlPassedThenLoadedAgain() {
+        var now = new AtomicLong();
+        var cache = new TinyLfuCache<Integer, String>(10, Duration.ofSeconds(1), now::get);
+        cache.get(1, key -> Optional.of("old"));
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertThat(cache.get(1, key -> Optional.of("new"))).contains("new");
+    }
+
+    @Test
+    void whenScanOfColdKeysThenHotKeysSurvive() {
+        var cache = new TinyLfuCache<Integer, String>(100, Duration.ofMinutes(1));
+        IntStream.range(0, 5).forEach(round -> IntStream.range(0, 50)
+                .forEach(key -> cache.get(key, k -> Optional.of("hot"))));
+        IntStream.range(1000, 11000).forEach(key -> cache.get(key, k -> Optional.of("cold")));
+        var before = cache.missCount();
+        IntStream.range(0, 50).forEach(key -> cache.get(key, k -> Optional.of("reloaded")));
+        assertThat(cache.missCount() - before).isLessThan(5);
+        assertThat(cache.size()).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    void whenInvalidatedThenLoadedAgain() {
+        var cache = new TinyLfuCache<Integer, String>(10, Duration.ofMinutes(1));
+        cache.get(1, key -> Optional.of("old"));
+        cache.invalidate(1);
+        assertThat(cache.get(1, key -> Optional.of("new"))).contains("new");
+    }
+
+    @Test
+    void whenInvalidatedDuringLoadThenResultNotCached() {
+        var cache = new TinyLfuCache<Integer, String>(10, Duration.ofMinutes(1));
+        cache.get(1, key -> {
+            cache.invalidate(1);
+            return Optional.of("stale");
+        });
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void whenAbsentThenNothingCached() {
+        var cache = new TinyLfuCache<Integer, String>(10, Duration.ofMinutes(1));
+        assertThat(cache.get(1, key -> Optional.empty())).isEmpty();
+        assertThat(cache.get(1, key -> Optional.of("a"))).contains("a");
+    }
+}
@@ -0,0 +1,65 @@
+package ru.job4j.dreamjob.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.datasource.ConnectionPool;
+import ru.job4j.dreamjob.datasource.ConnectionPoolProperties;
+import ru.job4j.dreamjob.datasource.Shards;
+
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DatasourceConfigurationTest {
+
+    private static final String SHARD_URL = "jdbc:h2:mem:configuration-shard;MODE=PostgreSQL";
+
+    private final DatasourceConfiguration configuration = new DatasourceConfiguration();
+
+    private ConnectionPool pool;
+
+    private Sql2o sql2o;
+
+    @BeforeEach
+    public void openDatabase() throws Exception {
+        var properties = new Properties();
+        try (var inputStream = DatasourceConfigurationTest.class.getClassLoader()
+                .getResourceAsStream("connection.properties")) {
+            properties.load(inputStream);
+        }
+        pool = configuration.connectionPool(properties.getProperty("datasource.url"),
+                properties.getProperty("datasource.username"), properties.getProperty("datasource.password"),
+                new ConnectionPoolProperties());
+        sql2o = configuration.databaseClient(pool);
+    }
+
+    @AfterEach
+    public void clearAndClose() throws Exception {
+        try (var connection = sql2o.open()) {
+            connection.createQuery("DELETE FROM settings WHERE name = 'shards.count'").executeUpdate();
+        }
+        pool.close();
+    }
+
+    @Test
+    public void whenShardCountChangedAfterFirstStartThenShardsNotCreated() throws Exception {
+        try (var shards = shards(List.of())) {
+            assertThat(shards.count()).isEqualTo(1);
+        }
+        try (var shards = shards(List.of())) {
+            assertThat(shards.count()).isEqualTo(1);
+        }
+        assertThatThrownBy(() -> shards(List.of(SHARD_URL)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("2");
+    }
+
+    private Shards shards(List<String> urls) {
+        return configuration.shards(sql2o, urls, "", "", 1, new ConnectionPoolProperties(), new SimpleMeterRegistry());
+    }
+}
@@ -6,15 +6,23 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.ui.ConcurrentModel;
 import org.springframework.web.multipart.MultipartFile;
+import ru.job4j.dreamjob.dto.CandidateSummary;
+import ru.job4j.dreamjob.dto.ExportFormat;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
 import ru.job4j.dreamjob.model.Candidate;
 import ru.job4j.dreamjob.model.City;
 import ru.job4j.dreamjob.service.CandidateService;
 import ru.job4j.dreamjob.service.CityService;
+import ru.job4j.dreamjob.service.ExportService;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +39,9 @@ class CandidateControllerTest {
     @Mock
     private CityService cityService;
 
+    @Mock
+    private ExportService exportService;
+
     @InjectMocks
     private CandidateController candidateController;
 
@@ -39,16 +50,35 @@ class CandidateControllerTest {
     @Test
     void whenGetAllThenReturnCandidatesListPage() {
         var candidates = List.of(
-                new Candidate(1, "Ivan", "desc1", now(), 1, 1),
-                new Candidate(2, "Petr", "desc2", now(), 2, 2)
+                new CandidateSummary(1, "Ivan", now(), 1, "Москва", 1),
+                new CandidateSummary(2, "Petr", now(), 2, "Санкт-Петербург", 2)
         );
-        when(candidateService.findAll()).thenReturn(candidates);
+        when(candidateService.findSummaryPage(null, 20)).thenReturn(new Page<>(candidates, null, null));
         var model = new ConcurrentModel();
-        var view = candidateController.getAll(model);
+        var view = candidateController.getAll(model, null, null);
         assertThat(view).isEqualTo("candidates/list");
         assertThat(model.getAttribute("candidates")).isEqualTo(candidates);
     }
 
+    @Test
+    void whenGetPreviousPageThenCursorPassedToService() {
+        var cursor = PageCursor.before(LocalDateTime.of(2025, 2, 2, 11, 25, 17), 3);
+        when(candidateService.findSummaryPage(cursor, 20)).thenReturn(new Page<>(List.of(), null, null));
+        var model = new ConcurrentModel();
+        var view = candidateController.getAll(model, null, cursor.getToken());
+        assertThat(view).isEqualTo("candidates/list");
+        assertThat(model.getAttribute("candidates")).isEqualTo(List.of());
+    }
+
+    @Test
+    void whenCursorIsMalformedThenFirstPageRequested() {
+        when(candidateService.findSummaryPage(null, 20)).thenReturn(new Page<>(List.of(), null, null));
+        var model = new ConcurrentModel();
+        var view = candidateController.getAll(model, "garbage", null);
+        assertThat(view).isEqualTo("candidates/list");
+        verify(candidateService).findSummaryPage(null, 20);
+    }
+
     @Test
     void whenGetCreatePageThenReturnCreateFormWithCities() {
         var cities = List.of(new City(1, "Москва"), new City(2, "СПб"));
@@ -62,7 +92,7 @@ class CandidateControllerTest {
     @Test
     void whenCreateCandidateThenRedirect() throws Exception {
         var candidate = new Candidate(0, "Ivan", "desc", now(), 1, 1);
-        var fileDto = new FileDto(testFile.getOriginalFilename(), testFile.getBytes());
+        var fileDto = new FileDto(testFile.getOriginalFilename(), testFile, testFile.getSize());
         var candidateCaptor = ArgumentCaptor.forClass(Candidate.class);
         var fileCaptor = ArgumentCaptor.forClass(FileDto.class);
         when(candidateService.save(candidateCaptor.capture(), fileCaptor.capture())).thenReturn(candidate);
@@ -107,7 +137,7 @@ class CandidateControllerTest {
     @Test
     void whenUpdateCandidateThenRedirect() throws Exception {
         var candidate = new Candidate(1, "Ivan", "desc", now(), 1, 1);
-        var fileDto = new FileDto(testFile.getOriginalFilename(), testFile.getBytes());
+        var fileDto = new FileDto(testFile.getOriginalFilename(), testFile, testFile.getSize());
         var candidateCaptor = ArgumentCaptor.forClass(Candidate.class);
         var fileCaptor = ArgumentCaptor.forClass(FileDto.class);
         when(candidateService.update(candidateCaptor.capture(), fileCaptor.capture())).thenReturn(true);
@@ -152,4 +182,13 @@ class CandidateControllerTest {
         assertThat(view).isEqualTo("errors/404");
         assertThat(model.getAttribute("message")).isEqualTo("Кандидат с указанным идентификатором не найден");
     }
+
+    @Test
+    void whenExportNdjsonThenAttachmentWrittenToResponse() throws IOException {
+        var response = new MockHttpServletResponse();
+        candidateController.export("ndjson", response);
+        assertThat(response.getContentType()).isEqualTo("application/x-ndjson;charset=UTF-8");
+        assertThat(response.getHeader("Content-Disposition")).isEqualTo("attachment; filename=\"candidates.ndjson\"");
+        verify(exportService).exportCandidates(ExportFormat.NDJSON, response.getOutputStream());
+    }
 }
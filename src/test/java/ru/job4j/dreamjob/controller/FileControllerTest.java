@@ -5,18 +5,30 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import ru.job4j.dreamjob.dto.FileDto;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.job4j.dreamjob.dto.FileResourceDto;
+import ru.job4j.dreamjob.dto.ImageSize;
 import ru.job4j.dreamjob.service.FileService;
 
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
 class FileControllerTest {
 
+    private static final long LAST_MODIFIED = 1_736_400_000_000L;
+
     @Mock
     private FileService fileService;
 
@@ -26,19 +38,95 @@ class FileControllerTest {
     @Test
     void whenGetByIdFoundThenReturnContent() {
         byte[] expectedContent = {1, 2, 3};
-        var fileDto = new FileDto("file.jpg", expectedContent);
-        when(fileService.getFileById(1)).thenReturn(Optional.of(fileDto));
-        ResponseEntity<?> response = fileController.getById(1);
+        var resource = new ByteArrayResource(expectedContent);
+        var fileDto = new FileResourceDto("file.jpg", MediaType.IMAGE_JPEG, expectedContent.length, "abc", LAST_MODIFIED,
+                ImageSize.ORIGINAL, resource);
+        when(fileService.getFileById(1, ImageSize.ORIGINAL)).thenReturn(Optional.of(fileDto));
+        ResponseEntity<Resource> response = fileController.getById(1, "original");
         assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
-        assertThat(response.getBody()).isEqualTo(expectedContent);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.IMAGE_JPEG);
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(3);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"abc\"");
+        assertThat(response.getHeaders().getLastModified()).isEqualTo(LAST_MODIFIED);
+        assertThat(response.getHeaders().getCacheControl()).contains("immutable");
+        assertThat(response.getBody()).isEqualTo(resource);
     }
 
     @Test
     void whenGetByIdNotFoundThenReturn404() {
-        when(fileService.getFileById(1)).thenReturn(Optional.empty());
-        ResponseEntity<?> response = fileController.getById(1);
+        when(fileService.getFileById(1, ImageSize.ORIGINAL)).thenReturn(Optional.empty());
+        ResponseEntity<Resource> response = fileController.getById(1, "original");
         assertThat(response.getStatusCode().is4xxClientError()).isTrue();
         assertThat(response.getStatusCodeValue()).isEqualTo(404);
     }
+
+    @Test
+    void whenRangeRequestedThenReturnPartialContent() throws Exception {
+        byte[] content = {1, 2, 3, 4, 5};
+        var fileDto = new FileResourceDto("file.png", MediaType.IMAGE_PNG, content.length, "abc", LAST_MODIFIED, ImageSize.ORIGINAL,
+                new ByteArrayResource(content));
+        when(fileService.getFileById(1, ImageSize.ORIGINAL)).thenReturn(Optional.of(fileDto));
+        MockMvcBuilders.standaloneSetup(fileController).build()
+                .perform(get("/files/1").header(HttpHeaders.RANGE, "bytes=1-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1-3/5"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 3))
+                .andExpect(content().bytes(new byte[]{2, 3, 4}));
+    }
+
+    @Test
+    void whenEtagMatchesThenReturnNotModified() throws Exception {
+        var fileDto = new FileResourceDto("file.png", MediaType.IMAGE_PNG, 3, "abc", LAST_MODIFIED, ImageSize.ORIGINAL,
+                new ByteArrayResource(new byte[]{1, 2, 3}));
+        when(fileService.getFileById(1, ImageSize.ORIGINAL)).thenReturn(Optional.of(fileDto));
+        MockMvcBuilders.standaloneSetup(fileController).build()
+                .perform(get("/files/1").header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void whenNotModifiedSinceThenReturnNotModified() throws Exception {
+        var fileDto = new FileResourceDto("file.png", MediaType.IMAGE_PNG, 3, "abc", LAST_MODIFIED, ImageSize.ORIGINAL,
+                new ByteArrayResource(new byte[]{1, 2, 3}));
+        when(fileService.getFileById(1, ImageSize.ORIGINAL)).thenReturn(Optional.of(fileDto));
+        MockMvcBuilders.standaloneSetup(fileController).build()
+                .perform(get("/files/1").header(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void whenEtagDiffersThenReturnContent() throws Exception {
+        var fileDto = new FileResourceDto("file.png", MediaType.IMAGE_PNG, 3, "abc", LAST_MODIFIED, ImageSize.ORIGINAL,
+                new ByteArrayResource(new byte[]{1, 2, 3}));
+        when(fileService.getFileById(1, ImageSize.ORIGINAL)).thenReturn(Optional.of(fileDto));
+        MockMvcBuilders.standaloneSetup(fileController).build()
+                .perform(get("/files/1").header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(new byte[]{1, 2, 3}));
+    }
+
+    @Test
+    void whenVariantReadyThenReturnItWithLongCaching() {
+        var resource = new ByteArrayResource(new byte[]{1});
+        var fileDto = new FileResourceDto("file.png", MediaType.IMAGE_JPEG, 1, "abc-thumb", LAST_MODIFIED,
+                ImageSize.THUMB, resource);
+        when(fileService.getFileById(1, ImageSize.THUMB)).thenReturn(Optional.of(fileDto));
+        ResponseEntity<Resource> response = fileController.getById(1, "thumb");
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.IMAGE_JPEG);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"abc-thumb\"");
+        assertThat(response.getHeaders().getCacheControl()).contains("immutable");
+        assertThat(response.getBody()).isEqualTo(resource);
+    }
+
+    @Test
+    void whenVariantNotReadyThenReturnOriginalWithoutLongCaching() {
+        var fileDto = new FileResourceDto("file.png", MediaType.IMAGE_PNG, 3, "abc", LAST_MODIFIED,
+                ImageSize.ORIGINAL, new ByteArrayResource(new byte[]{1, 2, 3}));
+        when(fileService.getFileById(1, ImageSize.MEDIUM)).thenReturn(Optional.of(fileDto));
+        ResponseEntity<Resource> response = fileController.getById(1, "medium");
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.IMAGE_PNG);
+        assertThat(response.getHeaders().getCacheControl()).isEqualTo("no-cache");
+    }
 }
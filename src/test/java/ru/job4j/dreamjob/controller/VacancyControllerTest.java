@@ -6,15 +6,27 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.ui.ConcurrentModel;
 import org.springframework.web.multipart.MultipartFile;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.ExportFormat;
+import ru.job4j.dreamjob.dto.ImportError;
+import ru.job4j.dreamjob.dto.ImportReport;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancySummary;
 import ru.job4j.dreamjob.model.City;
 import ru.job4j.dreamjob.model.Vacancy;
 import ru.job4j.dreamjob.service.CityService;
+import ru.job4j.dreamjob.service.ExportService;
+import ru.job4j.dreamjob.service.VacancyImportService;
 import ru.job4j.dreamjob.service.VacancyService;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +43,12 @@ public class VacancyControllerTest {
     @Mock
     private CityService cityService;
 
+    @Mock
+    private VacancyImportService vacancyImportService;
+
+    @Mock
+    private ExportService exportService;
+
     @InjectMocks
     private VacancyController vacancyController;
 
@@ -38,15 +56,29 @@ public class VacancyControllerTest {
 
     @Test
     public void whenRequestVacancyListPageThenGetPageWithVacancies() {
-        var vacancy1 = new Vacancy(1, "test1", "desc1", now(), true, 1, 2);
-        var vacancy2 = new Vacancy(2, "test2", "desc2", now(), false, 3, 4);
+        var vacancy1 = new VacancySummary(1, "test1", now(), true, 1, "Москва", 2);
+        var vacancy2 = new VacancySummary(2, "test2", now(), false, 3, "Екатеринбург", 4);
         var expectedVacancies = List.of(vacancy1, vacancy2);
-        when(vacancyService.findAll()).thenReturn(expectedVacancies);
+        var page = new Page<>(expectedVacancies, null, null);
+        when(vacancyService.findSummaryPage(null, 20)).thenReturn(page);
         var model = new ConcurrentModel();
-        var view = vacancyController.getAll(model);
+        var view = vacancyController.getAll(model, null, null);
         var actualVacancies = model.getAttribute("vacancies");
         assertThat(view).isEqualTo("vacancies/list");
         assertThat(actualVacancies).isEqualTo(expectedVacancies);
+        assertThat(model.getAttribute("page")).isEqualTo(page);
+    }
+
+    @Test
+    public void whenRequestNextVacancyPageThenCursorPassedToService() {
+        var creationDate = LocalDateTime.of(2025, 1, 9, 12, 30, 59);
+        var cursor = PageCursor.after(creationDate, 5);
+        var page = new Page<VacancySummary>(List.of(), null, PageCursor.before(creationDate, 5));
+        when(vacancyService.findSummaryPage(cursor, 20)).thenReturn(page);
+        var model = new ConcurrentModel();
+        var view = vacancyController.getAll(model, cursor.getToken(), null);
+        assertThat(view).isEqualTo("vacancies/list");
+        assertThat(model.getAttribute("page")).isEqualTo(page);
     }
 
     @Test
@@ -65,7 +97,7 @@ public class VacancyControllerTest {
     @Test
     public void whenPostVacancyWithFileThenSameDataAndRedirectToVacanciesPage() throws Exception {
         var vacancy = new Vacancy(1, "test1", "desc1", now(), true, 1, 2);
-        var fileDto = new FileDto(testFile.getOriginalFilename(), testFile.getBytes());
+        var fileDto = new FileDto(testFile.getOriginalFilename(), testFile, testFile.getSize());
         var vacancyArgumentCaptor = ArgumentCaptor.forClass(Vacancy.class);
         var fileDtoArgumentCaptor = ArgumentCaptor.forClass(FileDto.class);
         when(vacancyService.save(vacancyArgumentCaptor.capture(), fileDtoArgumentCaptor.capture())).thenReturn(vacancy);
@@ -115,7 +147,7 @@ public class VacancyControllerTest {
     @Test
     public void whenPostUpdateVacancyWithFileThenSameDataAndRedirectToVacanciesPage() throws Exception {
         var vacancy = new Vacancy(1, "test1", "desc1", now(), true, 1, 2);
-        var fileDto = new FileDto(testFile.getOriginalFilename(), testFile.getBytes());
+        var fileDto = new FileDto(testFile.getOriginalFilename(), testFile, testFile.getSize());
         var vacancyArgumentCaptor = ArgumentCaptor.forClass(Vacancy.class);
         var fileDtoArgumentCaptor = ArgumentCaptor.forClass(FileDto.class);
         when(vacancyService.update(vacancyArgumentCaptor.capture(), fileDtoArgumentCaptor.capture())).thenReturn(true);
@@ -164,4 +196,21 @@ public class VacancyControllerTest {
         assertThat(view).isEqualTo("errors/404");
         assertThat(model.getAttribute("message")).isEqualTo("Вакансия с указанным идентификатором не найдена");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void whenImportCsvThenReportFromImportService() throws IOException {
+        var body = new ByteArrayInputStream(new byte[]{1});
+        var report = new ImportReport(1, 1, List.of(new ImportError(2, "не задано название")));
+        when(vacancyImportService.importCsv(body)).thenReturn(report);
+        assertThat(vacancyController.importCsv(body)).isEqualTo(report);
+    }
+
+    @Test
+    public void whenExportWithUnknownFormatThenCsv() throws IOException {
+        var response = new MockHttpServletResponse();
+        vacancyController.export("xlsx", response);
+        assertThat(response.getContentType()).isEqualTo("text/csv;charset=UTF-8");
+        assertThat(response.getHeader("Content-Disposition")).isEqualTo("attachment; filename=\"vacancies.csv\"");
+        verify(exportService).exportVacancies(ExportFormat.CSV, response.getOutputStream());
+    }
+}
@@ -0,0 +1,65 @@
+package ru.job4j.dreamjob.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.dbcp2.DelegatingStatement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionPoolTest {
+
+    private static final String URL = "jdbc:h2:mem:connection-pool;DB_CLOSE_DELAY=-1";
+
+    private ConnectionPool pool;
+
+    @AfterEach
+    public void closePool() throws SQLException {
+        pool.close();
+    }
+
+    @Test
+    public void whenLeakedConnectionAbandonedThenReclaimedForNextBorrow() throws Exception {
+        var properties = new ConnectionPoolProperties();
+        properties.setMaxTotal(1);
+        properties.setMaxWait(Duration.ofSeconds(1));
+        properties.setAbandonedTimeout(Duration.ZERO);
+        pool = new ConnectionPool(URL, "", "", properties);
+        pool.getConnection();
+        Thread.sleep(5);
+        try (var connection = pool.getConnection()) {
+            assertThat(connection.isValid(1)).isTrue();
+            assertThat(pool.getNumActive()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void whenSameSqlPreparedAgainThenStatementTakenFromPool() throws SQLException {
+        pool = new ConnectionPool(URL, "", "", new ConnectionPoolProperties());
+        try (var connection = pool.getConnection()) {
+            var first = connection.prepareStatement("SELECT 1");
+            var firstDelegate = ((DelegatingStatement) first).getInnermostDelegate();
+            first.close();
+            var second = connection.prepareStatement("SELECT 1");
+            assertThat(((DelegatingStatement) second).getInnermostDelegate()).isSameAs(firstDelegate);
+            second.close();
+        }
+    }
+
+    @Test
+    public void whenConnectionBorrowedThenGaugesFollowPool() throws SQLException {
+        pool = new ConnectionPool(URL, "", "", new ConnectionPoolProperties());
+        var registry = new SimpleMeterRegistry();
+        new ConnectionPoolMetrics(pool, "test").bindTo(registry);
+        try (var connection = pool.getConnection()) {
+            assertThat(registry.get("jdbc.connections.active").gauge().value()).isEqualTo(1);
+            assertThat(registry.get("jdbc.connections.pending").gauge().value()).isZero();
+            assertThat(registry.get("jdbc.connections.max").gauge().value()).isEqualTo(20);
+        }
+        assertThat(registry.get("jdbc.connections.active").gauge().value()).isZero();
+        assertThat(registry.get("jdbc.connections.borrowed").functionCounter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,110 @@
+package ru.job4j.dreamjob.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.model.City;
+import ru.job4j.dreamjob.repository.Sql2oCityRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Основную БД и реплику изображают две базы H2 с разным содержимым справочника городов.
+ */
+class RoutingDataSourceTest {
+
+    private final DatasourceConfiguration configuration = new DatasourceConfiguration();
+
+    private ConnectionPool primary;
+
+    private ConnectionPool replica;
+
+    private UnitOfWork unitOfWork;
+
+    private RoutingDataSource routingDataSource;
+
+    private Sql2oCityRepository cityRepository;
+
+    @BeforeEach
+    public void createDatabases() {
+        primary = database("jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1", "Москва");
+        replica = database("jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1", "Реплика");
+        unitOfWork = configuration.unitOfWork(primary);
+        routingDataSource = new RoutingDataSource(unitOfWork, List.of(replica));
+        cityRepository = new Sql2oCityRepository(configuration.databaseClient(routingDataSource));
+    }
+
+    private ConnectionPool database(String url, String city) {
+        var pool = configuration.connectionPool(url, "", "", new ConnectionPoolProperties());
+        try (var connection = new Sql2o(pool).open()) {
+            connection.createQuery("CREATE TABLE cities (id int PRIMARY KEY, name varchar)").executeUpdate();
+            connection.createQuery("INSERT INTO cities VALUES (1, :name)").addParameter("name", city).executeUpdate();
+        }
+        return pool;
+    }
+
+    @AfterEach
+    public void dropDatabases() throws Exception {
+        routingDataSource.endSession();
+        for (var pool : List.of(primary, replica)) {
+            try (var connection = new Sql2o(pool).open()) {
+                connection.createQuery("DROP TABLE cities").executeUpdate();
+            }
+            pool.close();
+        }
+    }
+
+    @Test
+    public void whenReadOnlyThenReplicaOtherwisePrimary() {
+        assertThat(cityName()).isEqualTo("Реплика");
+        assertThat(RoutingDataSource.onPrimary(this::cityName)).isEqualTo("Москва");
+        assertThat(unitOfWork.execute(this::cityName)).isEqualTo("Москва");
+    }
+
+    @Test
+    public void whenSessionWroteThenItReadsFromPrimary() {
+        routingDataSource.beginSession(false);
+        try (var connection = new Sql2o(routingDataSource).open()) {
+            connection.createQuery("SELECT name FROM cities").executeScalar(String.class);
+        }
+        assertThat(routingDataSource.endSession()).as("чтение не закрепляет сессию").isFalse();
+        routingDataSource.beginSession(false);
+        try (var connection = new Sql2o(routingDataSource).open()) {
+            connection.createQuery("UPDATE cities SET name = 'Санкт-Петербург'").executeUpdate();
+        }
+        assertThat(routingDataSource.endSession()).isTrue();
+        routingDataSource.beginSession(true);
+        assertThat(cityName()).isEqualTo("Санкт-Петербург");
+    }
+
+    @Test
+    public void whenSelectFromDataChangeDeltaThenSessionWrote() {
+        routingDataSource.beginSession(false);
+        try (var connection = new Sql2o(routingDataSource).open()) {
+            connection.createQuery("SELECT name FROM FINAL TABLE (UPDATE cities SET name = 'Казань' WHERE id = 1)")
+                    .executeScalar(String.class);
+        }
+        assertThat(routingDataSource.endSession()).isTrue();
+        routingDataSource.beginSession(false);
+        try (var connection = new Sql2o(routingDataSource).open()) {
+            connection.createQuery("select name from old table (delete from cities where id = 2)")
+                    .executeScalarList(String.class);
+        }
+        assertThat(routingDataSource.endSession()).isTrue();
+    }
+
+    @Test
+    public void whenNoReplicasThenEverythingOnPrimary() {
+        var repository = new Sql2oCityRepository(
+                configuration.databaseClient(new RoutingDataSource(unitOfWork, List.of())));
+        assertThat(repository.findAll()).extracting(City::getName).containsExactly("Москва");
+    }
+
+    private String cityName() {
+        return cityRepository.findAll().iterator().next().getName();
+    }
+}
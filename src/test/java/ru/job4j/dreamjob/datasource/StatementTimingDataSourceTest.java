@@ -0,0 +1,98 @@
+package ru.job4j.dreamjob.datasource;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementTimingDataSourceTest {
+
+    private final ListAppender<ILoggingEvent> log = new ListAppender<>();
+
+    private ConnectionPool pool;
+
+    private StatementTimingDataSource statementTiming;
+
+    private Sql2o sql2o;
+
+    @BeforeEach
+    public void createTable() {
+        var configuration = new DatasourceConfiguration();
+        pool = configuration.connectionPool("jdbc:h2:mem:statement-timing;DB_CLOSE_DELAY=-1", "", "",
+                new ConnectionPoolProperties());
+        statementTiming = new StatementTimingDataSource(pool, new SimpleMeterRegistry(), Duration.ZERO, List.of("password"));
+        sql2o = configuration.databaseClient(statementTiming);
+        try (var connection = sql2o.open()) {
+            connection.createQuery("CREATE TABLE accounts (id int PRIMARY KEY, email varchar, password varchar)")
+                    .executeUpdate();
+        }
+        log.start();
+        ((Logger) LoggerFactory.getLogger(StatementTimingDataSource.class.getName())).addAppender(log);
+    }
+
+    @AfterEach
+    public void dropTable() throws Exception {
+        ((Logger) LoggerFactory.getLogger(StatementTimingDataSource.class.getName())).detachAppender(log);
+        try (var connection = sql2o.open()) {
+            connection.createQuery("DROP TABLE accounts").executeUpdate();
+        }
+        pool.close();
+    }
+
+    @Test
+    public void whenInListsOfDifferentLengthThenOneTemplateWithRows() {
+        try (var connection = sql2o.open()) {
+            for (int id = 1; id <= 3; id++) {
+                connection.createQuery("INSERT INTO accounts (id, email) VALUES (:id, :email)")
+                        .addParameter("id", id)
+                        .addParameter("email", "user" + id + "@mail.ru")
+                        .executeUpdate();
+            }
+            connection.createQuery("SELECT id FROM accounts WHERE id IN (:ids)")
+                    .addParameter("ids", List.of(1, 2)).executeScalarList(Integer.class);
+            connection.createQuery("SELECT id FROM accounts WHERE id IN (:ids)")
+                    .addParameter("ids", List.of(1, 2, 3)).executeScalarList(Integer.class);
+        }
+        var select = statementTiming.stats().stream()
+                .filter(stats -> stats.getSql().startsWith("SELECT"))
+                .toList();
+        assertThat(select).hasSize(1);
+        assertThat(select.get(0).getSql()).isEqualTo("SELECT id FROM accounts WHERE id IN (?, ...)");
+        assertThat(select.get(0).getCount()).isEqualTo(2);
+        assertThat(select.get(0).getMeanRows()).as("строки считаются у первого выполнения из выборки").isEqualTo(2);
+        var insert = statementTiming.stats().stream()
+                .filter(stats -> stats.getSql().startsWith("INSERT"))
+                .findFirst().get();
+        assertThat(insert.getCount()).isEqualTo(3);
+        assertThat(insert.getMeanRows()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenSlowStatementThenLoggedWithParametersUnlessRedacted() {
+        try (var connection = sql2o.open()) {
+            connection.createQuery("INSERT INTO accounts (id, email, password) VALUES (:id, :email, :password)")
+                    .addParameter("id", 1)
+                    .addParameter("email", "user@mail.ru")
+                    .addParameter("password", "secret")
+                    .executeUpdate();
+            connection.createQuery("SELECT id FROM accounts WHERE email = :email")
+                    .addParameter("email", "user@mail.ru")
+                    .executeScalar(Integer.class);
+        }
+        var messages = log.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+        assertThat(messages).hasSize(2);
+        assertThat(messages.get(0)).contains("INSERT INTO accounts").doesNotContain("secret");
+        assertThat(messages.get(1)).contains("SELECT id FROM accounts").contains("user@mail.ru");
+    }
+}
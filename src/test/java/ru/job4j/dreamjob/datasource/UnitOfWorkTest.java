@@ -0,0 +1,169 @@
+package ru.job4j.dreamjob.datasource;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.Sql2oFileRepository;
+import ru.job4j.dreamjob.repository.Sql2oVacancyRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Properties;
+
+import static java.time.LocalDateTime.now;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UnitOfWorkTest {
+
+    private static UnitOfWork unitOfWork;
+
+    private static Sql2o sql2o;
+
+    private static Sql2oVacancyRepository vacancyRepository;
+
+    private static Sql2oFileRepository fileRepository;
+
+    private static File vacancyFile;
+
+    @BeforeAll
+    public static void initUnitOfWork() throws Exception {
+        var properties = new Properties();
+        try (var inputStream = UnitOfWorkTest.class.getClassLoader().getResourceAsStream("connection.properties")) {
+            properties.load(inputStream);
+        }
+        var configuration = new DatasourceConfiguration();
+        var datasource = configuration.connectionPool(properties.getProperty("datasource.url"),
+                properties.getProperty("datasource.username"), properties.getProperty("datasource.password"),
+                new ConnectionPoolProperties());
+        unitOfWork = configuration.unitOfWork(datasource);
+        sql2o = configuration.databaseClient(unitOfWork);
+        vacancyRepository = new Sql2oVacancyRepository(sql2o);
+        fileRepository = new Sql2oFileRepository(sql2o);
+        vacancyFile = fileRepository.save(new File("test", "test"));
+    }
+
+    @AfterAll
+    public static void deleteFile() {
+        fileRepository.deleteById(vacancyFile.getId());
+    }
+
+    @AfterEach
+    public void clearTables() {
+        try (var connection = sql2o.open()) {
+            connection.createQuery("DELETE FROM vacancies").executeUpdate();
+            connection.createQuery("DELETE FROM files WHERE hash IS NOT NULL").executeUpdate();
+            connection.createQuery("DELETE FROM file_deletions").executeUpdate();
+        }
+    }
+
+    @Test
+    public void whenSeveralCallsThenOneConnectionAndOneCommit() {
+        var file = fileRepository.save(new File("logo.png", "files/unit", "unit"));
+        unitOfWork.resetBorrowCount();
+        var vacancy = unitOfWork.execute(() -> {
+            var saved = vacancyRepository.save(newVacancy());
+            fileRepository.removeReference(file.getId());
+            assertThat(vacancyRepository.findById(saved.getId())).isPresent();
+            return saved;
+        });
+        assertThat(unitOfWork.resetBorrowCount()).isEqualTo(1);
+        assertThat(vacancyRepository.findById(vacancy.getId())).isPresent();
+        assertThat(fileRepository.findById(file.getId())).isEmpty();
+    }
+
+    @Test
+    public void whenExceptionThenAllCallsRolledBack() {
+        var file = fileRepository.save(new File("logo.png", "files/unit", "unit"));
+        var saved = new ArrayList<Vacancy>();
+        assertThatThrownBy(() -> unitOfWork.execute(() -> {
+            saved.add(vacancyRepository.save(newVacancy()));
+            fileRepository.removeReference(file.getId());
+            throw new IllegalArgumentException("отказ после записи");
+        })).isInstanceOf(IllegalArgumentException.class);
+        assertThat(vacancyRepository.findById(saved.get(0).getId())).isEmpty();
+        assertThat(fileRepository.findById(file.getId())).isPresent();
+        assertThat(fileRepository.findDeletions(0, 10)).isEmpty();
+    }
+
+    @Test
+    public void whenRepositoryRollsBackThenUnitNotCommitted() {
+        var saved = new ArrayList<Vacancy>();
+        assertThatThrownBy(() -> unitOfWork.execute(() -> {
+            saved.add(vacancyRepository.save(newVacancy()));
+            sql2o.beginTransaction().rollback();
+            return null;
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(vacancyRepository.findById(saved.get(0).getId())).isEmpty();
+    }
+
+    @Test
+    public void whenRolledBackThenAfterCommitActionsSkipped() {
+        var actions = new ArrayList<String>();
+        unitOfWork.afterCommit(() -> actions.add("вне единицы работы"));
+        unitOfWork.execute(() -> {
+            unitOfWork.afterCommit(() -> actions.add("после коммита"));
+            assertThat(actions).containsExactly("вне единицы работы");
+            return null;
+        });
+        assertThatThrownBy(() -> unitOfWork.execute(() -> {
+            unitOfWork.afterCommit(() -> actions.add("после отката"));
+            throw new IllegalArgumentException();
+        })).isInstanceOf(IllegalArgumentException.class);
+        assertThat(actions).containsExactly("вне единицы работы", "после коммита");
+    }
+
+    @Test
+    public void whenReleaseFailsThenConnectionClosedAndWorkExceptionKept() throws Exception {
+        var connection = mock(Connection.class);
+        var dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        doThrow(new SQLException("сбой автокоммита")).when(connection).setAutoCommit(true);
+        var failing = new UnitOfWork(dataSource);
+        assertThatThrownBy(() -> failing.execute(() -> {
+            try {
+                failing.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            throw new IllegalArgumentException("отказ работы");
+        })).isInstanceOf(IllegalArgumentException.class)
+                .satisfies(e -> assertThat(e.getSuppressed()).hasSize(1)
+                        .allSatisfy(suppressed -> assertThat(suppressed).hasMessage("сбой автокоммита")));
+        verify(connection).rollback();
+        verify(connection).close();
+    }
+
+    @Test
+    public void whenReleaseFailsAfterCommitThenIllegalStateAndConnectionClosed() throws Exception {
+        var connection = mock(Connection.class);
+        var dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        doThrow(new SQLException("сбой автокоммита")).when(connection).setAutoCommit(true);
+        var failing = new UnitOfWork(dataSource);
+        assertThatThrownBy(() -> failing.execute(() -> {
+            try {
+                return failing.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        })).isInstanceOf(IllegalStateException.class).hasCauseInstanceOf(SQLException.class);
+        verify(connection).commit();
+        verify(connection).close();
+    }
+
+    private static Vacancy newVacancy() {
+        return new Vacancy(0, "title", "description", now(), true, 1, vacancyFile.getId());
+    }
+}
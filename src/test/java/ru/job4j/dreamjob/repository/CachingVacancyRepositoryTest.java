@@ -0,0 +1,115 @@
+package ru.job4j.dreamjob.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.dreamjob.datasource.UnitOfWork;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancySummary;
+import ru.job4j.dreamjob.model.Vacancy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class CachingVacancyRepositoryTest {
+
+    private MemoryVacancyRepository source;
+
+    private CachingVacancyRepository repository;
+
+    @BeforeEach
+    void init() {
+        source = spy(new MemoryVacancyRepository());
+        repository = new CachingVacancyRepository(source, new UnitOfWork(mock(DataSource.class)), Duration.ofHours(1));
+        repository.refresh();
+    }
+
+    @Test
+    void whenReadThenSourceNotQueried() {
+        clearInvocations(source);
+        assertThat(repository.findAll()).hasSize(6);
+        assertThat(repository.findById(1)).isPresent();
+        assertThat(repository.findSummaryPage(null, 2).getItems()).hasSize(2);
+        verifyNoInteractions(source);
+    }
+
+    @Test
+    void whenWrittenThenSnapshotUpdatedWithoutReload() {
+        var saved = repository.save(new Vacancy(0, "title", "description", LocalDateTime.now(), true, 1, 0));
+        saved.setTitle("changed outside");
+        var update = new Vacancy(1, "updated", "description", LocalDateTime.now(), true, 1, 0);
+        repository.update(update);
+        repository.deleteById(2);
+        verify(source, times(1)).findAll();
+        assertThat(repository.findById(saved.getId()).get().getTitle()).isEqualTo("title");
+        assertThat(repository.findById(1).get().getTitle()).isEqualTo("updated");
+        assertThat(repository.findById(2)).isEmpty();
+        assertThat(repository.findAll()).hasSize(6);
+    }
+
+    @Test
+    void whenWrittenBySourceDirectlyThenVisibleAfterRefresh() {
+        var vacancy = source.save(new Vacancy(0, "other node", "description", LocalDateTime.now(), true, 1, 0));
+        assertThat(repository.findById(vacancy.getId())).isEmpty();
+        repository.refresh();
+        assertThat(repository.findById(vacancy.getId())).isPresent();
+    }
+
+    @Test
+    void whenSnapshotStaleThenReloadedInBackground() throws InterruptedException {
+        var stale = new CachingVacancyRepository(source, new UnitOfWork(mock(DataSource.class)), Duration.ZERO);
+        stale.refresh();
+        var vacancy = source.save(new Vacancy(0, "other node", "description", LocalDateTime.now(), true, 1, 0));
+        var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (stale.findById(vacancy.getId()).isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(stale.findById(vacancy.getId())).isPresent();
+        stale.shutdown();
+    }
+
+    @Test
+    void whenReloadInProgressThenReadersGetStaleSnapshotAndOneReload() throws Exception {
+        var stale = new CachingVacancyRepository(source, new UnitOfWork(mock(DataSource.class)), Duration.ZERO);
+        stale.refresh();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return invocation.callRealMethod();
+        }).when(source).findAll();
+        clearInvocations(source);
+        assertThat(stale.findAll()).hasSize(6);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 10; i++) {
+            assertThat(stale.findById(1)).isPresent();
+        }
+        release.countDown();
+        verify(source, timeout(5000).times(1)).findAll();
+        stale.shutdown();
+    }
+
+    @Test
+    void whenPagedThenSameOrderAsSource() {
+        var first = repository.findSummaryPage(null, 4);
+        var next = repository.findSummaryPage(first.getNext(), 4);
+        var back = repository.findSummaryPage(next.getPrevious(), 4);
+        assertThat(ids(first)).isEqualTo(ids(source.findSummaryPage(null, 4)));
+        assertThat(ids(next)).isEqualTo(ids(source.findSummaryPage(first.getNext(), 4)));
+        assertThat(next.getNext()).isNull();
+        assertThat(ids(back)).isEqualTo(ids(first));
+        assertThat(repository.findSummaryPage(PageCursor.after(LocalDateTime.MIN, 0), 4).getItems()).isEmpty();
+    }
+
+    private List<Integer> ids(Page<VacancySummary> page) {
+        return page.getItems().stream().map(VacancySummary::getId).toList();
+    }
+}
@@ -0,0 +1,44 @@
+package ru.job4j.dreamjob.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты репозиториев выполняют вариант H2, поэтому запросы PostgreSQL сверяются здесь как текст.
+ */
+class DialectTest {
+
+    @Test
+    public void whenPostgresqlThenDataChangeReturnsRowsWithReturning() {
+        assertThat(Dialect.POSTGRESQL.deleteReturning("DELETE FROM files WHERE id = :id", "path"))
+                .isEqualTo("DELETE FROM files WHERE id = :id RETURNING path");
+        assertThat(Dialect.POSTGRESQL.updateReturning("UPDATE files SET ref_count = ref_count - 1 WHERE id = :id",
+                "ref_count"))
+                .isEqualTo("UPDATE files SET ref_count = ref_count - 1 WHERE id = :id RETURNING ref_count");
+        assertThat(Dialect.POSTGRESQL.insertDeleted("INSERT INTO file_deletions (path)",
+                "DELETE FROM files WHERE id = :id AND ref_count <= 0", "path"))
+                .isEqualTo("WITH deleted AS (DELETE FROM files WHERE id = :id AND ref_count <= 0 RETURNING path) "
+                        + "INSERT INTO file_deletions (path) SELECT path FROM deleted");
+    }
+
+    @Test
+    public void whenPostgresqlThenOldValueReadFromLockedCopyOfRow() {
+        assertThat(Dialect.POSTGRESQL.updateReturningOld("vacancies", "title = :title", "file_id"))
+                .isEqualToIgnoringWhitespace("""
+                        UPDATE vacancies SET title = :title
+                        FROM (SELECT id, file_id FROM vacancies WHERE id = :id FOR UPDATE) previous
+                        WHERE vacancies.id = previous.id
+                        RETURNING previous.file_id
+                        """);
+    }
+
+    @Test
+    public void whenH2ThenDataChangeReadFromDeltaTables() {
+        assertThat(Dialect.H2.updateReturning("UPDATE files SET ref_count = ref_count - 1 WHERE id = :id",
+                "ref_count"))
+                .isEqualTo("SELECT ref_count FROM FINAL TABLE (UPDATE files SET ref_count = ref_count - 1 WHERE id = :id)");
+        assertThat(Dialect.H2.deleteReturning("DELETE FROM files WHERE id = :id", "path"))
+                .isEqualTo("SELECT path FROM OLD TABLE (DELETE FROM files WHERE id = :id)");
+    }
+}
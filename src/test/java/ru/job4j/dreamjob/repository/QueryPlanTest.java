@@ -0,0 +1,215 @@
+package ru.job4j.dreamjob.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.datasource.ConnectionPool;
+import ru.job4j.dreamjob.datasource.ConnectionPoolProperties;
+import ru.job4j.dreamjob.datasource.StatementStats;
+import ru.job4j.dreamjob.datasource.StatementTimingDataSource;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.model.Candidate;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.FileDeletion;
+import ru.job4j.dreamjob.model.User;
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Каждый запрос репозиториев выполняется на тестовой БД через {@link StatementTimingDataSource},
+ * который запоминает его SQL, после чего H2 строит для этого SQL план EXPLAIN. Тест падает, если
+ * план читает таблицу или индекс целиком: значит, запрос перестал попадать в индекс. Исключения перечислены
+ * в {@link #FULL_READS} точным текстом запроса.
+ */
+class QueryPlanTest {
+
+    /*
+     * в плане H2 чтение без условия выглядит как комментарий с одним именем таблицы (tableScan) или индекса;
+     * при поиске по индексу после имени идет условие
+     */
+    private static final Pattern FULL_READ = Pattern.compile("/\\* [\\w.\"]+ \\*/");
+
+    /* индекс, прочитанный по порядку сортировки, обрывается на FETCH FIRST (так H2 пишет LIMIT) и не читается целиком */
+    private static final String SORTED = "/* index sorted */";
+
+    /* H2 не показывает в плане запроса из OLD TABLE (...) и FINAL TABLE (...) план самой команды изменения, она проверяется отдельно */
+    private static final Pattern DATA_CHANGE = Pattern.compile("(?:OLD|FINAL) TABLE \\((.+)\\)");
+
+    /*
+     * полные списки для кеша вакансий, кандидатов и справочник городов читают всю таблицу по смыслу;
+     * страница назад идет по (creation_date, id) по возрастанию, а индекс построен по убыванию, и H2,
+     * в отличие от PostgreSQL, не читает его с конца, поэтому на H2 это полное чтение
+     */
+    private static final Set<String> FULL_READS = Set.of(
+            "SELECT " + RowMappers.VACANCY_COLUMNS + " FROM vacancies",
+            "SELECT " + RowMappers.CANDIDATE_COLUMNS + " FROM candidates",
+            "SELECT " + RowMappers.CITY_COLUMNS + " FROM cities",
+            "SELECT " + RowMappers.VACANCY_SUMMARY_COLUMNS + " FROM vacancies"
+                    + " WHERE (creation_date, id) > (?, ?) ORDER BY creation_date, id LIMIT ?",
+            "SELECT " + RowMappers.CANDIDATE_SUMMARY_COLUMNS + " FROM candidates"
+                    + " WHERE (creation_date, id) > (?, ?) ORDER BY creation_date, id LIMIT ?"
+    );
+
+    private final DatasourceConfiguration configuration = new DatasourceConfiguration();
+
+    private final String tag = UUID.randomUUID().toString();
+
+    private ConnectionPool pool;
+
+    private StatementTimingDataSource statementTiming;
+
+    private Sql2o sql2o;
+
+    @BeforeEach
+    public void openDatabase() throws Exception {
+        var properties = new Properties();
+        try (var inputStream = QueryPlanTest.class.getClassLoader().getResourceAsStream("connection.properties")) {
+            properties.load(inputStream);
+        }
+        pool = configuration.connectionPool(properties.getProperty("datasource.url"),
+                properties.getProperty("datasource.username"), properties.getProperty("datasource.password"),
+                new ConnectionPoolProperties());
+        statementTiming = new StatementTimingDataSource(pool, new SimpleMeterRegistry(), Duration.ofDays(1), List.of());
+        sql2o = configuration.databaseClient(statementTiming);
+    }
+
+    /* чистка идет мимо замера, чтобы ее запросы не попали в проверку */
+    @AfterEach
+    public void clearAndClose() throws Exception {
+        try (var connection = configuration.databaseClient(pool).open()) {
+            connection.createQuery("DELETE FROM vacancies WHERE title = :tag").addParameter("tag", tag).executeUpdate();
+            connection.createQuery("DELETE FROM candidates WHERE name = :tag").addParameter("tag", tag).executeUpdate();
+            connection.createQuery("DELETE FROM files WHERE name = :tag").addParameter("tag", tag).executeUpdate();
+            connection.createQuery("DELETE FROM file_deletions WHERE path LIKE :tag")
+                    .addParameter("tag", tag + "%").executeUpdate();
+            connection.createQuery("DELETE FROM users WHERE name = :tag").addParameter("tag", tag).executeUpdate();
+        }
+        pool.close();
+    }
+
+    @Test
+    public void whenRepositoryQueriesExplainedThenNoneReadsWholeTable() {
+        runFileQueries();
+        runVacancyQueries();
+        runCandidateQueries();
+        runUserAndCityQueries();
+        var statements = statementTiming.stats().stream().map(StatementStats::getSql).toList();
+        assertThat(statements).hasSizeGreaterThan(30).containsAll(FULL_READS);
+        assertThat(fullScans(statements)).isEmpty();
+    }
+
+    @Test
+    public void whenUpdateOrDeleteWithoutWhereThenFullScanReported() {
+        assertThat(fullScans(List.of("UPDATE files SET path = ?", "DELETE FROM vacancies",
+                "SELECT file_id FROM OLD TABLE (DELETE FROM candidates)"))).hasSize(3);
+    }
+
+    @Test
+    public void whenFilteredByColumnWithoutIndexThenPlanIsFullScan() {
+        assertThat(fullScans(List.of("SELECT id FROM vacancies WHERE visible = ?"))).hasSize(1);
+    }
+
+    private List<String> fullScans(Collection<String> statements) {
+        var fullScans = new ArrayList<String>();
+        for (var sql : statements) {
+            if (FULL_READS.contains(sql)) {
+                continue;
+            }
+            for (var plan : explainWithDataChanges(sql.replace("IN (?, ...)", "IN (?)"))) {
+                if (FULL_READ.matcher(plan).find() && !(plan.contains(SORTED) && plan.contains("FETCH FIRST"))) {
+                    fullScans.add(plan);
+                }
+            }
+        }
+        return fullScans;
+    }
+
+    private List<String> explainWithDataChanges(String sql) {
+        var plans = new ArrayList<String>();
+        try (var connection = sql2o.open()) {
+            var matcher = DATA_CHANGE.matcher(sql);
+            var statements = matcher.find() ? List.of(sql, matcher.group(1)) : List.of(sql);
+            for (var statement : statements) {
+                plans.add(connection.createQuery("EXPLAIN " + statement).executeScalar(String.class));
+            }
+        }
+        return plans;
+    }
+
+    private void runFileQueries() {
+        var files = new Sql2oFileRepository(sql2o);
+        var file = files.save(new File(tag, tag + "/a", tag + "a"));
+        files.findById(file.getId());
+        files.findByHash(file.getHash());
+        files.findAfter(file.getId() - 1, 10);
+        files.existsByPath(file.getPath());
+        files.findExistingPaths(List.of(file.getPath(), tag + "/b"));
+        files.updatePath(file.getId(), tag + "/c");
+        files.addReference(file.getId());
+        files.removeReference(file.getId());
+        files.removeReference(file.getId());
+        files.deleteUnreferenced(file.getId(), file.getId(), LocalDateTime.now());
+        files.addDeletions(List.of(tag + "/d"));
+        files.removeDeletions(files.findDeletions(0, 1000).stream()
+                .filter(deletion -> deletion.getPath().startsWith(tag))
+                .map(FileDeletion::getId)
+                .toList());
+        files.deleteById(files.save(new File(tag, tag + "/e", tag + "e")).getId());
+    }
+
+    private void runVacancyQueries() {
+        var vacancies = new Sql2oVacancyRepository(sql2o);
+        var creationDate = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        var vacancy = vacancies.save(new Vacancy(0, tag, "description", creationDate, true, 1, 0));
+        vacancies.saveAll(List.of(new Vacancy(0, tag, "description", creationDate, false, 2, 0)));
+        vacancies.findById(vacancy.getId());
+        vacancies.update(vacancy);
+        vacancies.updateAndGetOldFileId(vacancy);
+        vacancies.findAll();
+        vacancies.forEach(row -> { });
+        vacancies.findSummaryPage(null, 10);
+        vacancies.findSummaryPage(PageCursor.after(creationDate, vacancy.getId()), 10);
+        vacancies.findSummaryPage(PageCursor.before(creationDate, vacancy.getId()), 10);
+        vacancies.deleteById(vacancy.getId());
+        vacancies.deleteAndGetFileId(vacancy.getId());
+    }
+
+    private void runCandidateQueries() {
+        var candidates = new Sql2oCandidateRepository(sql2o);
+        var creationDate = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        var file = new Sql2oFileRepository(sql2o).save(new File(tag, tag + "/f", tag + "f"));
+        var candidate = candidates.save(new Candidate(0, tag, "description", creationDate, 1, file.getId()));
+        candidates.findById(candidate.getId());
+        candidates.update(candidate);
+        candidates.updateAndGetOldFileId(candidate);
+        candidates.findAll();
+        candidates.forEach(row -> { });
+        candidates.findSummaryPage(null, 10);
+        candidates.findSummaryPage(PageCursor.after(creationDate, candidate.getId()), 10);
+        candidates.findSummaryPage(PageCursor.before(creationDate, candidate.getId()), 10);
+        candidates.deleteById(candidate.getId());
+        candidates.deleteAndGetFileId(candidate.getId());
+    }
+
+    private void runUserAndCityQueries() {
+        var users = new Sql2oUserRepository(sql2o);
+        users.save(new User(0, tag + "@mail.ru", tag, "password"));
+        users.findByEmailAndPassword(tag + "@mail.ru", "password");
+        new Sql2oCityRepository(sql2o).findAll();
+    }
+}
@@ -0,0 +1,175 @@
+package ru.job4j.dreamjob.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.datasource.ConnectionPool;
+import ru.job4j.dreamjob.datasource.ConnectionPoolProperties;
+import ru.job4j.dreamjob.datasource.Shards;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancySummary;
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+/**
+ * Шарды изображают три базы H2 в памяти.
+ */
+class ShardedVacancyRepositoryTest {
+
+    private static final int SHARDS = 3;
+
+    private final DatasourceConfiguration configuration = new DatasourceConfiguration();
+
+    private final List<Sql2o> clients = new ArrayList<>();
+
+    private final List<ConnectionPool> pools = new ArrayList<>();
+
+    private Shards shards;
+
+    private ShardedVacancyRepository repository;
+
+    @BeforeEach
+    public void createShards() {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            var pool = configuration.connectionPool("jdbc:h2:mem:shard-" + shard + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                    "", "", new ConnectionPoolProperties());
+            var sql2o = configuration.databaseClient(pool);
+            try (var connection = sql2o.open()) {
+                connection.createQuery("""
+                        CREATE TABLE vacancies (id serial PRIMARY KEY, title varchar NOT NULL, description varchar NOT NULL,
+                        creation_date timestamp, visible boolean NOT NULL, city_id int, file_id int)""").executeUpdate();
+            }
+            clients.add(sql2o);
+            pools.add(pool);
+        }
+        shards = new Shards(clients, pools.subList(1, SHARDS), 2);
+        repository = new ShardedVacancyRepository(shards);
+    }
+
+    @AfterEach
+    public void dropShards() throws Exception {
+        for (var client : clients) {
+            try (var connection = client.open()) {
+                connection.createQuery("DROP TABLE vacancies").executeUpdate();
+            }
+        }
+        pools.get(0).close();
+        shards.close();
+    }
+
+    @Test
+    public void whenSavedInDifferentCitiesThenRowsInCityShardsWithUniqueIds() {
+        var saved = new ArrayList<Vacancy>();
+        for (int cityId = 1; cityId <= 6; cityId++) {
+            saved.add(repository.save(vacancy(cityId, LocalDateTime.of(2024, 1, cityId, 0, 0))));
+        }
+        assertThat(new HashSet<>(saved.stream().map(Vacancy::getId).toList())).hasSize(6);
+        for (var vacancy : saved) {
+            assertThat(shards.ofId(vacancy.getId())).isEqualTo(vacancy.getCityId() % SHARDS);
+            assertThat(repository.findById(vacancy.getId())).contains(vacancy);
+        }
+        for (int shard = 0; shard < SHARDS; shard++) {
+            try (var connection = clients.get(shard).open()) {
+                assertThat(connection.createQuery("SELECT count(*) FROM vacancies").executeScalar(Integer.class))
+                        .isEqualTo(2);
+            }
+        }
+        Collections.reverse(saved);
+        assertThat(repository.findAll()).containsExactlyElementsOf(saved);
+    }
+
+    @Test
+    public void whenOneShardFailsThenOtherShardsKeepTheirPartAndFailureListsRows() {
+        execute(1, "ALTER TABLE vacancies RENAME TO vacancies_offline");
+        try {
+            var batch = List.of(vacancy(3, LocalDateTime.now()), vacancy(4, LocalDateTime.now()),
+                    vacancy(5, LocalDateTime.now()), vacancy(7, LocalDateTime.now()));
+            var thrown = catchThrowableOfType(PartialSaveException.class, () -> repository.saveAll(batch));
+            assertThat(thrown.getSaved()).extracting(Vacancy::getCityId).containsExactlyInAnyOrder(3, 5);
+            assertThat(thrown.getFailed()).extracting(Vacancy::getCityId).containsExactlyInAnyOrder(4, 7);
+            assertThat(thrown.getFailed()).extracting(Vacancy::getId).containsOnly(0);
+            for (var vacancy : thrown.getSaved()) {
+                assertThat(repository.findById(vacancy.getId())).contains(vacancy);
+            }
+        } finally {
+            execute(1, "ALTER TABLE vacancies_offline RENAME TO vacancies");
+        }
+    }
+
+    @Test
+    public void whenCityChangedThenRowStaysInItsShard() {
+        var vacancy = repository.save(vacancy(1, LocalDateTime.now()));
+        vacancy.setCityId(2);
+        vacancy.setTitle("Новое название");
+        assertThat(repository.update(vacancy)).isTrue();
+        assertThat(repository.findById(vacancy.getId())).contains(vacancy);
+        assertThat(repository.deleteAndGetFileId(vacancy.getId())).contains(vacancy.getFileId());
+        assertThat(repository.findById(vacancy.getId())).isEmpty();
+    }
+
+    @Test
+    public void whenForEachThenRowsOfAllShardsWithGlobalIds() {
+        var saved = new ArrayList<Vacancy>();
+        for (int cityId = 1; cityId <= 7; cityId++) {
+            saved.add(repository.save(vacancy(cityId, LocalDateTime.of(2024, 1, cityId, 0, 0))));
+        }
+        var visited = new ArrayList<Vacancy>();
+        repository.forEach(visited::add);
+        assertThat(visited).usingRecursiveFieldByFieldElementComparator().containsExactlyInAnyOrderElementsOf(saved);
+    }
+
+    @Test
+    public void whenPagedAcrossShardsThenSameAsPagingAllRows() {
+        var all = new ArrayList<VacancySummary>();
+        var date = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 20; i++) {
+            /* часть вакансий с одной датой, чтобы порядок решали id из разных шардов */
+            var saved = repository.save(vacancy(i * 7 % 5, date.plusDays(i / 3)));
+            all.add(VacancySummary.of(saved));
+        }
+        PageCursor cursor = null;
+        var pages = 0;
+        do {
+            var page = repository.findSummaryPage(cursor, 4);
+            var expected = Page.slice(all, cursor, 4, ShardedVacancyRepositoryTest::key);
+            assertThat(page.getItems()).extracting(VacancySummary::getId)
+                    .containsExactlyElementsOf(expected.getItems().stream().map(VacancySummary::getId).toList());
+            assertThat(page.getNext()).isEqualTo(expected.getNext());
+            assertThat(page.getPrevious()).isEqualTo(expected.getPrevious());
+            if (page.getPrevious() != null) {
+                var back = repository.findSummaryPage(page.getPrevious(), 4);
+                assertThat(back.getItems()).extracting(VacancySummary::getId).containsExactlyElementsOf(
+                        Page.slice(all, page.getPrevious(), 4, ShardedVacancyRepositoryTest::key).getItems().stream()
+                                .map(VacancySummary::getId).toList());
+            }
+            cursor = page.getNext();
+            pages++;
+        } while (cursor != null);
+        assertThat(pages).isEqualTo(5);
+    }
+
+    private static Vacancy vacancy(int cityId, LocalDateTime creationDate) {
+        return new Vacancy(0, "Вакансия " + cityId, "Описание", creationDate, true, cityId, 1);
+    }
+
+    private static PageCursor key(VacancySummary summary) {
+        return PageCursor.after(summary.getCreationDate(), summary.getId());
+    }
+
+    private void execute(int shard, String sql) {
+        try (var connection = clients.get(shard).open()) {
+            connection.createQuery(sql).executeUpdate();
+        }
+    }
+}
@@ -4,10 +4,15 @@ import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.sql2o.Sql2o;
 import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.datasource.ConnectionPoolProperties;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.CandidateSummary;
 import ru.job4j.dreamjob.model.Candidate;
 import ru.job4j.dreamjob.model.File;
 
+import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Properties;
@@ -23,8 +28,12 @@ class Sql2oCandidateRepositoryTest {
 
     private static Sql2oFileRepository sql2oFileRepository;
 
+    private static Sql2o sql2o;
+
     private static File file;
 
+    private static File otherFile;
+
     @BeforeAll
     public static void initRepositories() throws Exception {
         var properties = new Properties();
@@ -36,17 +45,19 @@ class Sql2oCandidateRepositoryTest {
         var username = properties.getProperty("datasource.username");
         var password = properties.getProperty("datasource.password");
         var configuration = new DatasourceConfiguration();
-        var datasource = configuration.connectionPool(url, username, password);
-        var sql2o = configuration.databaseClient(datasource);
+        var datasource = configuration.connectionPool(url, username, password, new ConnectionPoolProperties());
+        sql2o = configuration.databaseClient(datasource);
         sql2oCandidateRepository = new Sql2oCandidateRepository(sql2o);
         sql2oFileRepository = new Sql2oFileRepository(sql2o);
         file = new File("test", "test");
         sql2oFileRepository.save(file);
+        otherFile = sql2oFileRepository.save(new File("other", "other"));
     }
 
     @AfterAll
     public static void deleteFile() {
         sql2oFileRepository.deleteById(file.getId());
+        sql2oFileRepository.deleteById(otherFile.getId());
     }
 
     @AfterEach
@@ -121,4 +132,91 @@ class Sql2oCandidateRepositoryTest {
         var isUpdated = sql2oCandidateRepository.update(candidate);
         assertThat(isUpdated).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void whenDeleteAndGetFileIdThenFileIdOfDeletedRow() {
+        var creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        var candidate = sql2oCandidateRepository.save(new Candidate(0, "name", "description", creationDate, 1, file.getId()));
+        assertThat(sql2oCandidateRepository.deleteAndGetFileId(candidate.getId())).contains(file.getId());
+        assertThat(sql2oCandidateRepository.findById(candidate.getId())).isEqualTo(empty());
+        assertThat(sql2oCandidateRepository.deleteAndGetFileId(candidate.getId())).isEmpty();
+    }
+
+    /* у старых анкет file_id может быть пустым, и такая строка не должна выглядеть отсутствующей */
+    @Test
+    public void whenFileIdNullThenUpdateAndDeleteReturnZero() {
+        var creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        var id = insertWithoutFile(creationDate);
+        var candidate = new Candidate(id, "new name", "description", creationDate, 1, file.getId());
+        assertThat(sql2oCandidateRepository.updateAndGetOldFileId(candidate)).contains(0);
+        assertThat(sql2oCandidateRepository.deleteAndGetFileId(id)).contains(file.getId());
+        id = insertWithoutFile(creationDate);
+        assertThat(sql2oCandidateRepository.deleteAndGetFileId(id)).contains(0);
+    }
+
+    @Test
+    public void whenUpdateAndGetOldFileIdThenFileIdBeforeUpdate() {
+        var creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        var candidate = sql2oCandidateRepository.save(new Candidate(0, "name", "description", creationDate, 1, file.getId()));
+        var updatedCandidate = new Candidate(candidate.getId(), "name", "description", creationDate, 1, otherFile.getId());
+        assertThat(sql2oCandidateRepository.updateAndGetOldFileId(updatedCandidate)).contains(file.getId());
+        assertThat(sql2oCandidateRepository.findById(candidate.getId()).get().getFileId()).isEqualTo(otherFile.getId());
+        updatedCandidate.setId(0);
+        assertThat(sql2oCandidateRepository.updateAndGetOldFileId(updatedCandidate)).isEmpty();
+    }
+
+    @Test
+    public void whenFindPagesThenWalkForwardAndBackByCreationDateAndId() {
+        var creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        var oldest = sql2oCandidateRepository.save(new Candidate(
+                0, "name1", "description1", creationDate.minusDays(1), 1, file.getId()));
+        var middle = sql2oCandidateRepository.save(new Candidate(
+                0, "name2", "description2", creationDate, 1, file.getId()));
+        var newest = sql2oCandidateRepository.save(new Candidate(
+                0, "name3", "description3", creationDate, 1, file.getId()));
+        var first = sql2oCandidateRepository.findSummaryPage(null, 2);
+        var second = sql2oCandidateRepository.findSummaryPage(first.getNext(), 2);
+        var back = sql2oCandidateRepository.findSummaryPage(second.getPrevious(), 2);
+        assertThat(ids(first)).isEqualTo(List.of(newest.getId(), middle.getId()));
+        assertThat(first.getPrevious()).isNull();
+        assertThat(ids(second)).isEqualTo(List.of(oldest.getId()));
+        assertThat(second.getNext()).isNull();
+        assertThat(ids(back)).isEqualTo(List.of(newest.getId(), middle.getId()));
+        assertThat(back.getPrevious()).isNull();
+        assertThat(back.getNext()).isEqualTo(first.getNext());
+    }
+
+    @Test
+    public void whenNothingSavedThenPageIsEmpty() {
+        var page = sql2oCandidateRepository.findSummaryPage(null, 10);
+        assertThat(page.getItems()).isEqualTo(emptyList());
+        assertThat(page.getNext()).isNull();
+        assertThat(page.getPrevious()).isNull();
+    }
+
+    @Test
+    public void whenFindSummaryPageThenListColumnsFilled() {
+        var creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        var candidate = sql2oCandidateRepository.save(new Candidate(0, "name", "description", creationDate, 2, file.getId()));
+        var summary = sql2oCandidateRepository.findSummaryPage(null, 10).getItems().get(0);
+        assertThat(summary.getId()).isEqualTo(candidate.getId());
+        assertThat(summary.getName()).isEqualTo(candidate.getName());
+        assertThat(summary.getCreationDate()).isEqualTo(creationDate);
+        assertThat(summary.getCityId()).isEqualTo(2);
+        assertThat(summary.getFileId()).isEqualTo(file.getId());
+    }
+
+    private List<Integer> ids(Page<CandidateSummary> page) {
+        return page.getItems().stream().map(CandidateSummary::getId).toList();
+    }
+
+    private static int insertWithoutFile(LocalDateTime creationDate) {
+        try (var connection = sql2o.open()) {
+            return connection.createQuery("""
+                            INSERT INTO candidates(name, description, creation_date, city_id, file_id)
+                            VALUES ('name', 'description', :creationDate, 1, NULL)""", true)
+                    .addParameter("creationDate", creationDate)
+                    .executeUpdate().getKey(Integer.class);
+        }
+    }
+}
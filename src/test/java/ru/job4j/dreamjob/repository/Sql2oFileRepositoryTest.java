@@ -0,0 +1,191 @@
+package ru.job4j.dreamjob.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.datasource.ConnectionPoolProperties;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.FileDeletion;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.Optional.empty;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Sql2oFileRepositoryTest {
+
+    private static Sql2oFileRepository sql2oFileRepository;
+
+    private static Sql2o sql2o;
+
+    @BeforeAll
+    public static void initRepository() throws Exception {
+        var properties = new Properties();
+        try (var inputStream = Sql2oFileRepositoryTest.class.getClassLoader()
+                .getResourceAsStream("connection.properties")) {
+            properties.load(inputStream);
+        }
+        var url = properties.getProperty("datasource.url");
+        var username = properties.getProperty("datasource.username");
+        var password = properties.getProperty("datasource.password");
+        var configuration = new DatasourceConfiguration();
+        var datasource = configuration.connectionPool(url, username, password, new ConnectionPoolProperties());
+        sql2o = configuration.databaseClient(datasource);
+        sql2oFileRepository = new Sql2oFileRepository(sql2o);
+    }
+
+    @AfterEach
+    public void clearFiles() {
+        try (var connection = sql2o.open()) {
+            connection.createQuery("DELETE FROM files WHERE hash IS NOT NULL").executeUpdate();
+            connection.createQuery("DELETE FROM file_deletions").executeUpdate();
+        }
+    }
+
+    @Test
+    public void whenSaveThenFindByIdAndHash() {
+        var file = sql2oFileRepository.save(new File("logo.png", "files/abc", "abc"));
+        assertThat(sql2oFileRepository.findById(file.getId()).get()).usingRecursiveComparison().isEqualTo(file);
+        assertThat(sql2oFileRepository.findByHash("abc").get()).usingRecursiveComparison().isEqualTo(file);
+        assertThat(sql2oFileRepository.findByHash("unknown")).isEqualTo(empty());
+    }
+
+    @Test
+    public void whenLastReferenceRemovedThenFileDeleted() {
+        var file = sql2oFileRepository.save(new File("logo.png", "files/abc", "abc"));
+        assertThat(sql2oFileRepository.addReference(file.getId())).isTrue();
+        assertThat(sql2oFileRepository.removeReference(file.getId())).isFalse();
+        assertThat(sql2oFileRepository.findById(file.getId())).isNotEmpty();
+        assertThat(sql2oFileRepository.removeReference(file.getId())).isTrue();
+        assertThat(sql2oFileRepository.findById(file.getId())).isEqualTo(empty());
+    }
+
+    @Test
+    public void whenLastReferencesRemovedConcurrentlyThenFileDeletedAndQueuedOnce() throws Exception {
+        var references = 8;
+        var file = sql2oFileRepository.save(new File("logo.png", "files/abc", "abc"));
+        for (int i = 1; i < references; i++) {
+            sql2oFileRepository.addReference(file.getId());
+        }
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(references);
+        try {
+            var results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < references; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return sql2oFileRepository.removeReference(file.getId());
+                }));
+            }
+            start.countDown();
+            var deleted = 0;
+            for (var result : results) {
+                deleted += result.get() ? 1 : 0;
+            }
+            assertThat(deleted).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(sql2oFileRepository.findById(file.getId())).isEqualTo(empty());
+        assertThat(sql2oFileRepository.findDeletions(0, 10)).extracting(FileDeletion::getPath).containsExactly("files/abc");
+    }
+
+    @Test
+    public void whenAddReferenceToDeletedFileThenFalse() {
+        var file = sql2oFileRepository.save(new File("logo.png", "files/abc", "abc"));
+        sql2oFileRepository.deleteById(file.getId());
+        assertThat(sql2oFileRepository.addReference(file.getId())).isFalse();
+        assertThat(sql2oFileRepository.removeReference(file.getId())).isFalse();
+    }
+
+    @Test
+    public void whenFindAfterThenNextFilesInIdOrder() {
+        var first = sql2oFileRepository.save(new File("a.png", "files/a", "a"));
+        var second = sql2oFileRepository.save(new File("b.png", "files/b", "b"));
+        var third = sql2oFileRepository.save(new File("c.png", "files/c", "c"));
+        assertThat(sql2oFileRepository.findAfter(first.getId(), 2))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(second, third);
+        assertThat(sql2oFileRepository.findAfter(third.getId(), 2)).isEmpty();
+    }
+
+    @Test
+    public void whenUpdatePathThenFindByIdReturnsNewPath() {
+        var file = sql2oFileRepository.save(new File("logo.png", "files/abc", "abc"));
+        assertThat(sql2oFileRepository.updatePath(file.getId(), "files/ab/c/abc")).isTrue();
+        assertThat(sql2oFileRepository.findById(file.getId()).get().getPath()).isEqualTo("files/ab/c/abc");
+        assertThat(sql2oFileRepository.updatePath(-1, "files/x")).isFalse();
+    }
+
+    @Test
+    public void whenLastReferenceRemovedThenPathQueuedForDeletion() {
+        var file = sql2oFileRepository.save(new File("logo.png", "files/abc", "abc"));
+        assertThat(sql2oFileRepository.removeReference(file.getId())).isTrue();
+        assertThat(sql2oFileRepository.findDeletions(0, 10)).extracting(FileDeletion::getPath).containsExactly("files/abc");
+    }
+
+    @Test
+    public void whenRemoveDeletionsThenQueueEmpty() {
+        sql2oFileRepository.addDeletions(List.of("files/a", "files/b"));
+        var deletions = sql2oFileRepository.findDeletions(0, 10);
+        assertThat(deletions).extracting(FileDeletion::getPath).containsExactly("files/a", "files/b");
+        sql2oFileRepository.removeDeletions(deletions.stream().map(FileDeletion::getId).toList());
+        assertThat(sql2oFileRepository.findDeletions(0, 10)).isEmpty();
+    }
+
+    @Test
+    public void whenFindExistingPathsThenOnlyPathsOfFiles() {
+        sql2oFileRepository.save(new File("logo.png", "files/abc", "abc"));
+        assertThat(sql2oFileRepository.findExistingPaths(List.of("files/abc", "files/unknown")))
+                .containsExactly("files/abc");
+        assertThat(sql2oFileRepository.existsByPath("files/abc")).isTrue();
+        assertThat(sql2oFileRepository.existsByPath("files/unknown")).isFalse();
+    }
+
+    @Test
+    public void whenDeleteUnreferencedThenOnlyFilesNotUsedSinceDeletedAndQueued() {
+        var file = sql2oFileRepository.save(new File("logo.png", "files/abc", "abc"));
+        setRefCount(file.getId(), 0);
+        var fromId = file.getId() - 1;
+        assertThat(sql2oFileRepository.deleteUnreferenced(fromId, file.getId(), LocalDateTime.now().minusHours(1)))
+                .isZero();
+        assertThat(sql2oFileRepository.deleteUnreferenced(fromId, file.getId(), LocalDateTime.now().plusMinutes(1)))
+                .isEqualTo(1);
+        assertThat(sql2oFileRepository.findById(file.getId())).isEqualTo(empty());
+        assertThat(sql2oFileRepository.findDeletions(0, 10)).extracting(FileDeletion::getPath).containsExactly("files/abc");
+    }
+
+    /* вакансия с этим файлом лежит в базе шарда 1, основная база видит только счетчик ссылок */
+    @Test
+    public void whenFileReferencedOnlyFromOtherShardThenNotDeletedUnreferenced() throws Exception {
+        var file = sql2oFileRepository.save(new File("logo.png", "files/abc", "abc"));
+        var configuration = new DatasourceConfiguration();
+        try (var pool = configuration.connectionPool("jdbc:h2:mem:file-shard-1;MODE=PostgreSQL", "", "",
+                new ConnectionPoolProperties()); var connection = configuration.databaseClient(pool).open()) {
+            connection.createQuery("CREATE TABLE vacancies (id serial PRIMARY KEY, file_id int)").executeUpdate();
+            connection.createQuery("INSERT INTO vacancies (file_id) VALUES (:fileId)")
+                    .addParameter("fileId", file.getId()).executeUpdate();
+            assertThat(sql2oFileRepository.deleteUnreferenced(file.getId() - 1, file.getId(),
+                    LocalDateTime.now().plusMinutes(1))).isZero();
+            assertThat(sql2oFileRepository.findById(file.getId())).isPresent();
+            assertThat(sql2oFileRepository.findDeletions(0, 10)).isEmpty();
+        }
+    }
+
+    private static void setRefCount(int id, int refCount) {
+        try (var connection = sql2o.open()) {
+            connection.createQuery("UPDATE files SET ref_count = :refCount WHERE id = :id")
+                    .addParameter("refCount", refCount)
+                    .addParameter("id", id)
+                    .executeUpdate();
+        }
+    }
+}
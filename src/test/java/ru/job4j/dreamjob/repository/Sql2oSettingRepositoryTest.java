@@ -0,0 +1,51 @@
+package ru.job4j.dreamjob.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.datasource.ConnectionPoolProperties;
+
+import java.util.Properties;
+
+import static java.util.Optional.empty;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Sql2oSettingRepositoryTest {
+
+    private static Sql2oSettingRepository sql2oSettingRepository;
+
+    private static Sql2o sql2o;
+
+    @BeforeAll
+    public static void initRepository() throws Exception {
+        var properties = new Properties();
+        try (var inputStream = Sql2oSettingRepositoryTest.class.getClassLoader()
+                .getResourceAsStream("connection.properties")) {
+            properties.load(inputStream);
+        }
+        var url = properties.getProperty("datasource.url");
+        var username = properties.getProperty("datasource.username");
+        var password = properties.getProperty("datasource.password");
+        var configuration = new DatasourceConfiguration();
+        var datasource = configuration.connectionPool(url, username, password, new ConnectionPoolProperties());
+        sql2o = configuration.databaseClient(datasource);
+        sql2oSettingRepository = new Sql2oSettingRepository(sql2o);
+    }
+
+    @AfterEach
+    public void clearSettings() {
+        try (var connection = sql2o.open()) {
+            connection.createQuery("DELETE FROM settings WHERE name LIKE 'test.%'").executeUpdate();
+        }
+    }
+
+    @Test
+    public void whenSaveIfAbsentTwiceThenFirstValueKept() {
+        assertThat(sql2oSettingRepository.findByName("test.count")).isEqualTo(empty());
+        assertThat(sql2oSettingRepository.saveIfAbsent("test.count", "2")).isEqualTo("2");
+        assertThat(sql2oSettingRepository.saveIfAbsent("test.count", "3")).isEqualTo("2");
+        assertThat(sql2oSettingRepository.findByName("test.count")).contains("2");
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.sql2o.Connection;
 import org.sql2o.Sql2o;
 import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.datasource.ConnectionPoolProperties;
 import ru.job4j.dreamjob.model.User;
 
 import java.util.Optional;
@@ -30,7 +31,7 @@ class Sql2oUserRepositoryTest {
         var username = properties.getProperty("datasource.username");
         var password = properties.getProperty("datasource.password");
         var configuration = new DatasourceConfiguration();
-        var datasource = configuration.connectionPool(url, username, password);
+        var datasource = configuration.connectionPool(url, username, password, new ConnectionPoolProperties());
         sql2o = configuration.databaseClient(datasource);
         sql2oUserRepository = new Sql2oUserRepository(sql2o);
     }
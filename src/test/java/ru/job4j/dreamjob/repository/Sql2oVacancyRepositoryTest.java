@@ -5,10 +5,16 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.datasource.ConnectionPoolProperties;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.VacancySummary;
 import ru.job4j.dreamjob.model.File;
 import ru.job4j.dreamjob.model.Vacancy;
 
+import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Properties;
 
@@ -25,9 +31,13 @@ public class Sql2oVacancyRepositoryTest {
 
     private static File file;
 
+    private static Properties properties;
+
+    private static File otherFile;
+
     @BeforeAll
     public static void initRepositories() throws Exception {
-        var properties = new Properties();
+        properties = new Properties();
         try (var inputStream = Sql2oVacancyRepositoryTest.class.getClassLoader().getResourceAsStream("connection.properties")) {
             properties.load(inputStream);
         }
@@ -35,17 +45,19 @@ public class Sql2oVacancyRepositoryTest {
         var username = properties.getProperty("datasource.username");
         var password = properties.getProperty("datasource.password");
         var configuration = new DatasourceConfiguration();
-        var datasource = configuration.connectionPool(url, username, password);
+        var datasource = configuration.connectionPool(url, username, password, new ConnectionPoolProperties());
         var sql2o = configuration.databaseClient(datasource);
         sql2oVacancyRepository = new Sql2oVacancyRepository(sql2o);
         sql2oFileRepository = new Sql2oFileRepository(sql2o);
         file = new File("test", "test");
         sql2oFileRepository.save(file);
+        otherFile = sql2oFileRepository.save(new File("other", "other"));
     }
 
     @AfterAll
     public static void deleteFile() {
         sql2oFileRepository.deleteById(file.getId());
+        sql2oFileRepository.deleteById(otherFile.getId());
     }
 
     @AfterEach
@@ -76,6 +88,79 @@ public class Sql2oVacancyRepositoryTest {
         assertThat(result).isEqualTo(List.of(vacancy1, vacancy2, vacancy3));
     }
 
+    @Test
+    public void whenSaveAllThenIdsFromBatchAndRowsFound() {
+        var creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        var vacancies = List.of(
+                new Vacancy(0, "title1", "description1", creationDate, true, 1, file.getId()),
+                new Vacancy(0, "title2", "description2", creationDate, false, 2, file.getId()),
+                new Vacancy(0, "title3", "description3", creationDate, true, 3, file.getId()));
+        var saved = sql2oVacancyRepository.saveAll(vacancies);
+        assertThat(saved.stream().map(Vacancy::getId).distinct().filter(id -> id > 0).count()).isEqualTo(3L);
+        for (var vacancy : saved) {
+            assertThat(sql2oVacancyRepository.findById(vacancy.getId()).get()).usingRecursiveComparison().isEqualTo(vacancy);
+        }
+    }
+
+    /*
+     * пул закрывает соединение, не возвращенное за секунду, а обработчик первой строки думает дольше;
+     * пока он работает, у обхода не должно быть взятых соединений
+     */
+    @Test
+    public void whenForEachSlowerThanAbandonedTimeoutThenAllRowsRead() throws Exception {
+        var creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        var vacancies = new ArrayList<Vacancy>();
+        for (int i = 0; i <= KeysetScan.PAGE_SIZE; i++) {
+            vacancies.add(new Vacancy(0, "title" + i, "description" + i, creationDate, true, 1, file.getId()));
+        }
+        sql2oVacancyRepository.saveAll(vacancies);
+        var poolProperties = new ConnectionPoolProperties();
+        poolProperties.setAbandonedTimeout(Duration.ofSeconds(1));
+        poolProperties.setEvictionInterval(Duration.ofMillis(100));
+        var configuration = new DatasourceConfiguration();
+        try (var pool = configuration.connectionPool(properties.getProperty("datasource.url"),
+                properties.getProperty("datasource.username"), properties.getProperty("datasource.password"),
+                poolProperties)) {
+            var repository = new Sql2oVacancyRepository(configuration.databaseClient(pool));
+            var visited = new ArrayList<Integer>();
+            var activeInHandler = new ArrayList<Integer>();
+            repository.forEach(vacancy -> {
+                if (visited.isEmpty()) {
+                    activeInHandler.add(pool.getNumActive());
+                    sleep(Duration.ofMillis(2500));
+                }
+                visited.add(vacancy.getId());
+            });
+            assertThat(activeInHandler.get(0)).isZero();
+            assertThat(visited.size()).isEqualTo(vacancies.size());
+        }
+    }
+
+    @Test
+    public void whenForEachThenAllRowsInIdOrderAcrossFetches() {
+        var creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        var vacancies = new ArrayList<Vacancy>();
+        for (int i = 0; i <= KeysetScan.PAGE_SIZE; i++) {
+            vacancies.add(new Vacancy(0, "title" + i, "description" + i, creationDate, i % 2 == 0, 1, file.getId()));
+        }
+        var saved = new ArrayList<>(sql2oVacancyRepository.saveAll(vacancies));
+        saved.sort(Comparator.comparingInt(Vacancy::getId));
+        var visited = new ArrayList<Vacancy>();
+        sql2oVacancyRepository.forEach(visited::add);
+        assertThat(visited).usingRecursiveComparison().isEqualTo(saved);
+    }
+
+    @Test
+    public void whenSavedWithoutFileThenFileIdZeroAndDeleteStillFindsRow() {
+        var creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        var vacancy = sql2oVacancyRepository.saveAll(List.of(
+                new Vacancy(0, "title", "description", creationDate, true, 1, 0))).iterator().next();
+        assertThat(sql2oVacancyRepository.findById(vacancy.getId()).get().getFileId()).isZero();
+        vacancy.setTitle("new title");
+        assertThat(sql2oVacancyRepository.updateAndGetOldFileId(vacancy)).contains(0);
+        assertThat(sql2oVacancyRepository.deleteAndGetFileId(vacancy.getId())).contains(0);
+    }
+
     @Test
     public void whenDontSaveThenNothingFound() {
         assertThat(sql2oVacancyRepository.findAll()).isEqualTo(emptyList());
@@ -121,4 +206,78 @@ public class Sql2oVacancyRepositoryTest {
         var isUpdated = sql2oVacancyRepository.update(vacancy);
         assertThat(isUpdated).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void whenDeleteAndGetFileIdThenFileIdOfDeletedRow() {
+        var creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        var vacancy = sql2oVacancyRepository.save(new Vacancy(0, "title", "description", creationDate, true, 1, file.getId()));
+        assertThat(sql2oVacancyRepository.deleteAndGetFileId(vacancy.getId())).contains(file.getId());
+        assertThat(sql2oVacancyRepository.findById(vacancy.getId())).isEqualTo(empty());
+        assertThat(sql2oVacancyRepository.deleteAndGetFileId(vacancy.getId())).isEmpty();
+    }
+
+    @Test
+    public void whenUpdateAndGetOldFileIdThenFileIdBeforeUpdate() {
+        var creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        var vacancy = sql2oVacancyRepository.save(new Vacancy(0, "title", "description", creationDate, true, 1, file.getId()));
+        var updatedVacancy = new Vacancy(vacancy.getId(), "title", "description", creationDate, true, 1, otherFile.getId());
+        assertThat(sql2oVacancyRepository.updateAndGetOldFileId(updatedVacancy)).contains(file.getId());
+        assertThat(sql2oVacancyRepository.findById(vacancy.getId()).get().getFileId()).isEqualTo(otherFile.getId());
+        updatedVacancy.setId(0);
+        assertThat(sql2oVacancyRepository.updateAndGetOldFileId(updatedVacancy)).isEmpty();
+    }
+
+    @Test
+    public void whenFindPagesThenWalkForwardAndBackByCreationDateAndId() {
+        var creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        var oldest = sql2oVacancyRepository.save(new Vacancy(
+                0, "title1", "description1", creationDate.minusDays(1), true, 1, file.getId()));
+        var middle = sql2oVacancyRepository.save(new Vacancy(
+                0, "title2", "description2", creationDate, true, 1, file.getId()));
+        var newest = sql2oVacancyRepository.save(new Vacancy(
+                0, "title3", "description3", creationDate, true, 1, file.getId()));
+        var first = sql2oVacancyRepository.findSummaryPage(null, 2);
+        var second = sql2oVacancyRepository.findSummaryPage(first.getNext(), 2);
+        var back = sql2oVacancyRepository.findSummaryPage(second.getPrevious(), 2);
+        assertThat(ids(first)).isEqualTo(List.of(newest.getId(), middle.getId()));
+        assertThat(first.getPrevious()).isNull();
+        assertThat(ids(second)).isEqualTo(List.of(oldest.getId()));
+        assertThat(second.getNext()).isNull();
+        assertThat(ids(back)).isEqualTo(List.of(newest.getId(), middle.getId()));
+        assertThat(back.getPrevious()).isNull();
+        assertThat(back.getNext()).isEqualTo(first.getNext());
+    }
+
+    @Test
+    public void whenNothingSavedThenPageIsEmpty() {
+        var page = sql2oVacancyRepository.findSummaryPage(null, 10);
+        assertThat(page.getItems()).isEqualTo(emptyList());
+        assertThat(page.getNext()).isNull();
+        assertThat(page.getPrevious()).isNull();
+    }
+
+    @Test
+    public void whenFindSummaryPageThenListColumnsFilled() {
+        var creationDate = now().truncatedTo(ChronoUnit.MINUTES);
+        var vacancy = sql2oVacancyRepository.save(new Vacancy(0, "title", "description", creationDate, true, 2, file.getId()));
+        var summary = sql2oVacancyRepository.findSummaryPage(null, 10).getItems().get(0);
+        assertThat(summary.getId()).isEqualTo(vacancy.getId());
+        assertThat(summary.getTitle()).isEqualTo(vacancy.getTitle());
+        assertThat(summary.getCreationDate()).isEqualTo(creationDate);
+        assertThat(summary.getVisible()).isTrue();
+        assertThat(summary.getCityId()).isEqualTo(2);
+        assertThat(summary.getFileId()).isEqualTo(file.getId());
+    }
+
+    private List<Integer> ids(Page<VacancySummary> page) {
+        return page.getItems().stream().map(VacancySummary::getId).toList();
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
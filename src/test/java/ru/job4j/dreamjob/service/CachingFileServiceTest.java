@@ -0,0 +1,48 @@
+package ru.job4j.dreamjob.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+import ru.job4j.dreamjob.dto.FileResourceDto;
+import ru.job4j.dreamjob.dto.ImageSize;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class CachingFileServiceTest {
+
+    private final FileService fileService = mock(FileService.class);
+
+    private final CachingFileService cachingFileService = new CachingFileService(fileService,
+            DataSize.ofMegabytes(1), DataSize.ofKilobytes(64), new SimpleMeterRegistry());
+
+    @Test
+    void whenVariantNotReadyThenOriginalServedFromCacheUntilVariantsReady() {
+        var original = file(ImageSize.ORIGINAL);
+        when(fileService.getFileById(1, ImageSize.ORIGINAL)).thenReturn(Optional.of(original));
+        when(fileService.getFileById(1, ImageSize.THUMB)).thenReturn(Optional.of(original));
+        assertThat(cachingFileService.getFileById(1, ImageSize.THUMB)).get()
+                .extracting(FileResourceDto::getVariant).isEqualTo(ImageSize.ORIGINAL);
+        assertThat(cachingFileService.getFileById(1, ImageSize.THUMB)).get()
+                .extracting(FileResourceDto::getVariant).isEqualTo(ImageSize.ORIGINAL);
+        verify(fileService, times(1)).getFileById(1, ImageSize.THUMB);
+        verify(fileService, times(1)).getFileById(1, ImageSize.ORIGINAL);
+
+        when(fileService.getFileById(1, ImageSize.THUMB)).thenReturn(Optional.of(file(ImageSize.THUMB)));
+        cachingFileService.onVariantsReady(new ImageVariantsReadyEvent(1));
+        assertThat(cachingFileService.getFileById(1, ImageSize.THUMB)).get()
+                .extracting(FileResourceDto::getVariant).isEqualTo(ImageSize.THUMB);
+        cachingFileService.getFileById(1, ImageSize.ORIGINAL);
+        verify(fileService, times(1)).getFileById(1, ImageSize.ORIGINAL);
+    }
+
+    private static FileResourceDto file(ImageSize variant) {
+        var content = new byte[]{1, 2, 3};
+        return new FileResourceDto("logo.png", MediaType.IMAGE_PNG, content.length, "etag-" + variant.getSuffix(),
+                0, variant, new ByteArrayResource(content));
+    }
+}
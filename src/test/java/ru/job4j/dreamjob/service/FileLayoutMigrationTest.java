@@ -0,0 +1,61 @@
+package ru.job4j.dreamjob.service;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.repository.FileRepository;
+import ru.job4j.dreamjob.repository.SettingRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class FileLayoutMigrationTest {
+
+    private final FileRepository fileRepository = mock(FileRepository.class);
+
+    private final SettingRepository settingRepository = mock(SettingRepository.class);
+
+    private final FileService fileService = mock(FileService.class);
+
+    private final FileLayoutMigration migration = new FileLayoutMigration(fileRepository, settingRepository,
+            fileService, 2, Duration.ZERO);
+
+    @Test
+    void whenAllFilesRelocatedThenCompletionRecorded() {
+        var first = file(1);
+        var second = file(2);
+        when(fileRepository.findAfter(0, 2)).thenReturn(List.of(first, second));
+        when(fileRepository.findAfter(2, 2)).thenReturn(List.of());
+        when(fileService.relocate(first)).thenReturn(true);
+        assertThat(migration.migrate()).isEqualTo(1);
+        verify(settingRepository).saveIfAbsent(FileLayoutMigration.COMPLETED, "true");
+    }
+
+    @Test
+    void whenFileFailedThenCompletionNotRecorded() {
+        var first = file(1);
+        when(fileRepository.findAfter(0, 2)).thenReturn(List.of(first));
+        when(fileRepository.findAfter(1, 2)).thenReturn(List.of());
+        when(fileService.relocate(first)).thenThrow(new IllegalStateException("диск недоступен"));
+        assertThat(migration.migrate()).isZero();
+        verify(settingRepository, never()).saveIfAbsent(any(), any());
+    }
+
+    @Test
+    void whenCompletionRecordedThenFilesNotScanned() {
+        when(settingRepository.findByName(FileLayoutMigration.COMPLETED)).thenReturn(Optional.of("true"));
+        migration.start();
+        verify(fileRepository, never()).findAfter(anyInt(), anyInt());
+    }
+
+    private static File file(int id) {
+        var file = new File("name" + id, "files/name" + id);
+        file.setId(id);
+        return file;
+    }
+}
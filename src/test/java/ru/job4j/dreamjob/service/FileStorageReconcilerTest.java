@@ -0,0 +1,106 @@
+package ru.job4j.dreamjob.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.repository.FileRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FileStorageReconcilerTest {
+
+    private static final Duration GRACE_PERIOD = Duration.ofHours(1);
+
+    private final FileRepository fileRepository = mock(FileRepository.class);
+
+    private final ImageVariantService imageVariantService = mock(ImageVariantService.class);
+
+    @TempDir
+    private Path root;
+
+    @Test
+    void whenTableReconciledThenBatchesFollowIdsAndStartOverAfterLast() {
+        var reconciler = reconciler(2);
+        when(fileRepository.findAfter(0, 2)).thenReturn(files(3, 7));
+        when(fileRepository.findAfter(7, 2)).thenReturn(files(9));
+        when(fileRepository.findAfter(9, 2)).thenReturn(List.of());
+        for (int i = 0; i < 4; i++) {
+            reconciler.reconcileTable();
+        }
+        var order = inOrder(fileRepository);
+        order.verify(fileRepository).deleteUnreferenced(eq(0), eq(7), any());
+        order.verify(fileRepository).deleteUnreferenced(eq(7), eq(9), any());
+        order.verify(fileRepository).findAfter(9, 2);
+        order.verify(fileRepository).findAfter(0, 2);
+    }
+
+    @Test
+    void whenTableReconciledThenOnlyRowsUnusedForGracePeriodDeleted() {
+        var reconciler = reconciler(10);
+        when(fileRepository.findAfter(0, 10)).thenReturn(files(1));
+        var startedAt = LocalDateTime.now();
+        reconciler.reconcileTable();
+        var before = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(fileRepository).deleteUnreferenced(eq(0), eq(1), before.capture());
+        assertThat(before.getValue()).isBetween(startedAt.minus(GRACE_PERIOD), LocalDateTime.now().minus(GRACE_PERIOD));
+    }
+
+    @Test
+    void whenStorageReconciledThenOnlyOldFilesWithoutRowQueued() throws IOException {
+        var reconciler = reconciler(10);
+        var old = FileTime.from(Instant.now().minus(GRACE_PERIOD).minusSeconds(60));
+        var orphan = write("ab/orphan", old);
+        var known = write("ab/known", old);
+        var fresh = write("ab/fresh", FileTime.from(Instant.now()));
+        var upload = write("upload1.tmp", old);
+        when(fileRepository.findAfter(0, 1)).thenReturn(List.of());
+        when(imageVariantService.findSource(any())).thenReturn(Optional.empty());
+        when(fileRepository.findExistingPaths(anyCollection())).thenReturn(Set.of(known.toString()));
+        var queued = 0;
+        for (int i = 0; i < 2; i++) {
+            queued += reconciler.reconcileStorage();
+        }
+        assertThat(queued).isEqualTo(1);
+        verify(fileRepository).addDeletions(List.of(orphan.toString()));
+        verify(fileRepository, never()).addDeletions(argThat(paths -> paths.contains(fresh.toString())));
+        assertThat(upload).doesNotExist();
+    }
+
+    private FileStorageReconciler reconciler(int batchSize) {
+        return new FileStorageReconciler(fileRepository, imageVariantService, root.toString(), batchSize, GRACE_PERIOD);
+    }
+
+    private Path write(String name, FileTime lastModified) throws IOException {
+        var path = root.resolve(name);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, name);
+        Files.setLastModifiedTime(path, lastModified);
+        return path;
+    }
+
+    private static Collection<File> files(int... ids) {
+        return Arrays.stream(ids).mapToObj(id -> {
+            var file = new File("name" + id, "files/" + id, "hash" + id);
+            file.setId(id);
+            return file;
+        }).toList();
+    }
+}
@@ -0,0 +1,140 @@
+package ru.job4j.dreamjob.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.datasource.ConnectionPoolProperties;
+import ru.job4j.dreamjob.dto.CandidateSummary;
+import ru.job4j.dreamjob.model.Candidate;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.repository.Sql2oCandidateRepository;
+import ru.job4j.dreamjob.repository.Sql2oCityRepository;
+import ru.job4j.dreamjob.repository.Sql2oFileRepository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static java.time.LocalDateTime.now;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class SimpleCandidateServiceTest {
+
+    private static final AtomicInteger STATEMENTS = new AtomicInteger();
+
+    private static Sql2oCandidateRepository sql2oCandidateRepository;
+
+    private static Sql2oFileRepository sql2oFileRepository;
+
+    private static SimpleCandidateService candidateService;
+
+    private static FileService fileService;
+
+    private static File file;
+
+    @BeforeAll
+    public static void initService() throws Exception {
+        var properties = new Properties();
+        try (var inputStream = SimpleCandidateServiceTest.class.getClassLoader()
+                .getResourceAsStream("connection.properties")) {
+            properties.load(inputStream);
+        }
+        var configuration = new DatasourceConfiguration();
+        var datasource = configuration.connectionPool(properties.getProperty("datasource.url"),
+                properties.getProperty("datasource.username"), properties.getProperty("datasource.password"),
+                new ConnectionPoolProperties());
+        var unitOfWork = configuration.unitOfWork(countingStatements(datasource));
+        var sql2o = configuration.databaseClient(unitOfWork);
+        sql2oCandidateRepository = new Sql2oCandidateRepository(sql2o);
+        sql2oFileRepository = new Sql2oFileRepository(sql2o);
+        var cityService = new SimpleCityService(new Sql2oCityRepository(sql2o));
+        cityService.refresh();
+        fileService = mock(FileService.class);
+        candidateService = new SimpleCandidateService(sql2oCandidateRepository, fileService,
+                cityService, unitOfWork, 10, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        file = new File("test", "test");
+        sql2oFileRepository.save(file);
+    }
+
+    @AfterAll
+    public static void deleteFile() {
+        sql2oFileRepository.deleteById(file.getId());
+    }
+
+    @AfterEach
+    public void clearCandidates() {
+        sql2oCandidateRepository.findAll()
+                .forEach(candidate -> sql2oCandidateRepository.deleteById(candidate.getId()));
+    }
+
+    @Test
+    public void whenListPageThenStatementCountDoesNotDependOnRows() {
+        saveCandidates(2);
+        var small = statementsFor(() -> candidateService.findSummaryPage(null, 20).getItems());
+        saveCandidates(18);
+        var full = statementsFor(() -> assertThat(candidateService.findSummaryPage(null, 20).getItems())
+                .hasSize(20)
+                .extracting(CandidateSummary::getCityName)
+                .containsOnly("Москва"));
+        assertThat(full).isEqualTo(small).isEqualTo(1);
+    }
+
+    @Test
+    public void whenDeleteThenOneStatementAndFileReferenceRemoved() {
+        var candidate = sql2oCandidateRepository.save(new Candidate(0, "name", "description", now(), 1, file.getId()));
+        assertThat(statementsFor(() -> assertThat(candidateService.deleteById(candidate.getId())).isTrue()))
+                .isEqualTo(1);
+        verify(fileService).deleteById(file.getId());
+        assertThat(candidateService.findById(candidate.getId())).isEmpty();
+    }
+
+    private void saveCandidates(int count) {
+        IntStream.range(0, count).forEach(i -> sql2oCandidateRepository.save(
+                new Candidate(0, "name" + i, "description", now(), 1, file.getId())));
+    }
+
+    private int statementsFor(Runnable action) {
+        var before = STATEMENTS.get();
+        action.run();
+        return STATEMENTS.get() - before;
+    }
+
+    private static DataSource countingStatements(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    var result = invoke(dataSource, method, args);
+                    return result instanceof Connection connection ? countingStatements(connection) : result;
+                });
+    }
+
+    private static Connection countingStatements(Connection connection) {
+        var statementMethods = Set.of("prepareStatement", "createStatement", "prepareCall");
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (statementMethods.contains(method.getName())) {
+                        STATEMENTS.incrementAndGet();
+                    }
+                    return invoke(connection, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
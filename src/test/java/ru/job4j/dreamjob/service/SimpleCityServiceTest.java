@@ -0,0 +1,38 @@
+package ru.job4j.dreamjob.service;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.dreamjob.model.City;
+import ru.job4j.dreamjob.repository.CityRepository;
+import ru.job4j.dreamjob.repository.MemoryCityRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class SimpleCityServiceTest {
+
+    @Test
+    void whenReadRepeatedlyThenRepositoryQueriedOnce() {
+        var repository = spy(new MemoryCityRepository());
+        var service = new SimpleCityService(repository);
+        service.findAll();
+        service.findAll();
+        assertThat(service.findById(2)).map(City::getName).contains("Санкт-Петербург");
+        assertThat(service.findById(0)).isEmpty();
+        assertThat(service.findById(100)).isEmpty();
+        verify(repository, times(1)).findAll();
+    }
+
+    @Test
+    void whenRefreshedThenNewCitiesVisible() {
+        var repository = mock(CityRepository.class);
+        when(repository.findAll()).thenReturn(List.of(new City(2, "Б"), new City(1, "А")));
+        var service = new SimpleCityService(repository);
+        assertThat(service.findAll()).extracting(City::getId).containsExactly(1, 2);
+        when(repository.findAll()).thenReturn(List.of(new City(1, "А"), new City(5, "В")));
+        service.refresh();
+        assertThat(service.findById(2)).isEmpty();
+        assertThat(service.findById(5)).map(City::getName).contains("В");
+    }
+}
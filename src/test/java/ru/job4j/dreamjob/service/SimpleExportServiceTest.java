@@ -0,0 +1,69 @@
+package ru.job4j.dreamjob.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import ru.job4j.dreamjob.dto.ExportFormat;
+import ru.job4j.dreamjob.model.Candidate;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.MemoryCandidateRepository;
+import ru.job4j.dreamjob.repository.MemoryVacancyRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SimpleExportServiceTest {
+
+    private final MemoryVacancyRepository vacancyRepository = new MemoryVacancyRepository();
+
+    private final MemoryCandidateRepository candidateRepository = new MemoryCandidateRepository();
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final SimpleExportService service = new SimpleExportService(vacancyRepository, candidateRepository,
+            objectMapper);
+
+    @Test
+    void whenCsvThenEveryVacancyReadsBackWithSameFields() throws IOException {
+        var vacancy = vacancyRepository.save(new Vacancy(0, "Тимлид \"платформы\", Москва", "Описание\nв две строки",
+                LocalDateTime.of(2025, 1, 9, 12, 30), false, 2, 0));
+        var output = new ByteArrayOutputStream();
+        service.exportVacancies(ExportFormat.CSV, output);
+        var csv = new CsvReader(new StringReader(output.toString(StandardCharsets.UTF_8)));
+        var records = new ArrayList<List<String>>();
+        for (var record = csv.next(); record != null; record = csv.next()) {
+            records.add(record);
+        }
+        assertThat(records.get(0)).containsExactly(
+                "id", "title", "description", "creationDate", "visible", "cityId", "fileId");
+        assertThat(records).hasSize(vacancyRepository.findAll().size() + 1);
+        assertThat(records).contains(List.of(String.valueOf(vacancy.getId()), "Тимлид \"платформы\", Москва",
+                "Описание\nв две строки", "2025-01-09T12:30", "false", "2", "0"));
+    }
+
+    @Test
+    void whenNdjsonThenOneObjectPerLine() throws IOException {
+        var output = new ByteArrayOutputStream();
+        service.exportCandidates(ExportFormat.NDJSON, output);
+        var text = output.toString(StandardCharsets.UTF_8);
+        assertThat(text).endsWith("\n");
+        var lines = text.split("\n");
+        assertThat(lines).hasSize(candidateRepository.findAll().size());
+        var ids = new ArrayList<Integer>();
+        for (var line : lines) {
+            var candidate = objectMapper.readValue(line, Candidate.class);
+            assertThat(candidateRepository.findById(candidate.getId())).get()
+                    .usingRecursiveComparison().isEqualTo(candidate);
+            ids.add(candidate.getId());
+        }
+        assertThat(ids).doesNotHaveDuplicates();
+    }
+}
@@ -0,0 +1,66 @@
+package ru.job4j.dreamjob.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.FileDeletion;
+import ru.job4j.dreamjob.repository.MemoryFileRepository;
+import ru.job4j.dreamjob.storage.BlobStore;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class SimpleFileServiceTest {
+
+    private final MemoryFileRepository fileRepository = new MemoryFileRepository();
+
+    private final BlobStore blobStore = mock(BlobStore.class);
+
+    @TempDir
+    private Path root;
+
+    @Test
+    void whenBlobDeletionFailsThenDeletionKeptAndRetriedOnNextRun() {
+        var service = service(10);
+        fileRepository.addDeletions(List.of("files/a", "files/b"));
+        doThrow(new IllegalStateException("disk is busy")).doNothing().when(blobStore).delete("files/a");
+        service.purgeDeleted();
+        assertThat(fileRepository.findDeletions(0, 10)).extracting(FileDeletion::getPath).containsExactly("files/a");
+        verify(blobStore).delete("files/b");
+        service.purgeDeleted();
+        assertThat(fileRepository.findDeletions(0, 10)).isEmpty();
+        verify(blobStore, times(2)).delete("files/a");
+    }
+
+    /* первая порция целиком не удаляется, но следующие разбираются в том же запуске */
+    @Test
+    void whenWholeBatchFailsThenNextBatchesStillPurged() {
+        var service = service(2);
+        fileRepository.addDeletions(List.of("files/a", "files/b", "files/c", "files/d", "files/e"));
+        doThrow(new IllegalStateException("disk is busy")).when(blobStore).delete("files/a");
+        doThrow(new IllegalStateException("disk is busy")).when(blobStore).delete("files/b");
+        service.purgeDeleted();
+        assertThat(fileRepository.findDeletions(0, 10)).extracting(FileDeletion::getPath)
+                .containsExactly("files/a", "files/b");
+        verify(blobStore).delete("files/e");
+    }
+
+    @Test
+    void whenPathUsedAgainThenBlobNotDeleted() {
+        var service = service(10);
+        var file = fileRepository.save(new File("logo.png", "files/a", "a"));
+        fileRepository.addDeletions(List.of(file.getPath()));
+        service.purgeDeleted();
+        verify(blobStore, never()).delete(anyString());
+        assertThat(fileRepository.findDeletions(0, 10)).isEmpty();
+    }
+
+    private SimpleFileService service(int deletionBatchSize) {
+        return new SimpleFileService(fileRepository, root.toString(), 8192, mock(ImageVariantService.class),
+                deletionBatchSize, blobStore, mock(ApplicationEventPublisher.class));
+    }
+}
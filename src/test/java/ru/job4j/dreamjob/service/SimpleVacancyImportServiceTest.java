@@ -0,0 +1,118 @@
+package ru.job4j.dreamjob.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.job4j.dreamjob.dto.ImportError;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.MemoryCityRepository;
+import ru.job4j.dreamjob.repository.MemoryVacancyRepository;
+import ru.job4j.dreamjob.repository.PartialSaveException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class SimpleVacancyImportServiceTest {
+
+    private final MemoryVacancyRepository repository = spy(new MemoryVacancyRepository());
+
+    private final SimpleVacancyImportService service = new SimpleVacancyImportService(repository,
+            new SimpleCityService(new MemoryCityRepository()), new ObjectMapper(), 2, 100);
+
+    @Test
+    void whenCsvThenValidRowsSavedInChunksAndInvalidReported() throws IOException {
+        var csv = """
+                title,description,cityId,visible
+                Java Developer,"Опыт от 3 лет, Spring",1,true
+                "Тимлид ""платформы""\","Описание
+                в две строки",2,false
+                ,Без названия,1,true
+                Аналитик,Описание,99,true
+
+                Тестировщик,Описание,3
+                QA,Описание,3,да
+                DevOps,Описание,2,
+                """;
+        var report = service.importCsv(stream(csv));
+        assertThat(report.getImported()).isEqualTo(3);
+        assertThat(report.getFailed()).isEqualTo(4);
+        assertThat(report.getErrors()).extracting(ImportError::getRow).containsExactly(3, 4, 5, 6);
+        assertThat(report.getErrors().get(1).getMessage()).isEqualTo("город 99 не найден");
+        verify(repository, times(2)).saveAll(anyCollection());
+        var saved = repository.findAll().stream().filter(vacancy -> vacancy.getFileId() == 0 && vacancy.getId() > 6).toList();
+        assertThat(saved).extracting(Vacancy::getTitle)
+                .containsExactlyInAnyOrder("Java Developer", "Тимлид \"платформы\"", "DevOps");
+        assertThat(saved).filteredOn(vacancy -> vacancy.getTitle().startsWith("Тимлид"))
+                .extracting(Vacancy::getDescription).containsExactly("Описание\nв две строки");
+    }
+
+    @Test
+    void whenJsonBrokenInTheMiddleThenRowsBeforeKeptAndErrorReported() throws IOException {
+        var json = """
+                [{"title": "Java Developer", "description": "Описание", "cityId": 1},
+                 42,
+                 {"title": "Kotlin Developer", "description": "Описание", "cityId": 2, "visible": false},
+                 {"title": "Оборванная", "descr
+                """;
+        var report = service.importJson(stream(json));
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getErrors()).extracting(ImportError::getRow).containsExactly(2, 4);
+        assertThat(report.getErrors().get(1).getMessage()).startsWith("документ разобран не до конца");
+    }
+
+    @Test
+    void whenChunkFailsThenRowsSavedOneByOneAndOnlyFailingReported() throws IOException {
+        doThrow(new IllegalStateException("batch failed")).when(repository).saveAll(anyCollection());
+        doThrow(new IllegalStateException("title too long"))
+                .when(repository).save(argThat(vacancy -> vacancy.getTitle().equals("Плохая")));
+        var json = """
+                [{"title": "Первая", "description": "Описание", "cityId": 1},
+                 {"title": "Плохая", "description": "Описание", "cityId": 1}]
+                """;
+        var report = service.importJson(stream(json));
+        assertThat(report.getImported()).isEqualTo(1);
+        assertThat(report.getErrors()).extracting(ImportError::getRow).containsExactly(2);
+        assertThat(report.getErrors().get(0).getMessage()).contains("title too long");
+        verify(repository, times(2)).save(any(Vacancy.class));
+    }
+
+    /* шард города 2 упал, а доля города 1 уже зафиксирована и второй раз не пишется */
+    @Test
+    void whenOneShardOfChunkFailsThenOnlyItsRowsSavedOneByOne() throws IOException {
+        doAnswer(invocation -> {
+            var saved = new ArrayList<Vacancy>();
+            var failed = new ArrayList<Vacancy>();
+            for (Vacancy vacancy : invocation.<List<Vacancy>>getArgument(0)) {
+                if (vacancy.getCityId() == 1) {
+                    saved.add(repository.save(vacancy));
+                } else {
+                    failed.add(vacancy);
+                }
+            }
+            throw new PartialSaveException(saved, failed, new IllegalStateException("shard 2 is down"));
+        }).when(repository).saveAll(anyCollection());
+        var json = """
+                [{"title": "Москва", "description": "Описание", "cityId": 1},
+                 {"title": "Петербург", "description": "Описание", "cityId": 2}]
+                """;
+        var report = service.importJson(stream(json));
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getErrors()).isEmpty();
+        verify(repository, times(1)).save(argThat(vacancy -> vacancy.getTitle().equals("Москва")));
+        verify(repository, times(1)).save(argThat(vacancy -> vacancy.getTitle().equals("Петербург")));
+        assertThat(repository.findAll()).filteredOn(vacancy -> vacancy.getTitle().equals("Москва")).hasSize(1);
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
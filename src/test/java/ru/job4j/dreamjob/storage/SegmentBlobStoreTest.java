@@ -0,0 +1,121 @@
+package ru.job4j.dreamjob.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentBlobStoreTest {
+
+    private static final long MAX_SEGMENT_SIZE = 1024;
+
+    private static final long MAX_BLOB_SIZE = 512;
+
+    @TempDir
+    private Path root;
+
+    private SegmentBlobStore store;
+
+    @BeforeEach
+    public void openStore() {
+        store = open();
+    }
+
+    @AfterEach
+    public void closeStore() throws IOException {
+        store.close();
+    }
+
+    @Test
+    public void whenPutThenFindContentAtLayoutLocation() throws IOException {
+        var location = store.put("abcdef", write(new byte[]{1, 2, 3, 4, 5}));
+        assertThat(location).isEqualTo(root.resolve("files/ab/cd/abcdef").toString());
+        var blob = store.find(location).get();
+        assertThat(blob.getSize()).isEqualTo(5);
+        assertThat(blob.getResource().getContentAsByteArray()).containsExactly(1, 2, 3, 4, 5);
+        try (var input = blob.getResource().getInputStream()) {
+            assertThat(input.skip(3)).isEqualTo(3);
+            assertThat(input.readAllBytes()).containsExactly(4, 5);
+        }
+        assertThat(Files.exists(Path.of(location))).isFalse();
+    }
+
+    @Test
+    public void whenBlobLargerThanLimitThenStoredAsFile() throws IOException {
+        var location = store.put("abcdef", write(new byte[(int) MAX_BLOB_SIZE + 1]));
+        assertThat(Files.size(Path.of(location))).isEqualTo(MAX_BLOB_SIZE + 1);
+        assertThat(store.find(location).get().getSize()).isEqualTo(MAX_BLOB_SIZE + 1);
+        store.delete(location);
+        assertThat(Files.exists(Path.of(location))).isFalse();
+    }
+
+    @Test
+    public void whenReopenThenIndexRebuiltWithoutDeletedBlobs() throws IOException {
+        var kept = store.put("aaaa01", write(new byte[]{1}));
+        var deleted = store.put("bbbb02", write(new byte[]{2}));
+        store.delete(deleted);
+        store.close();
+        store = open();
+        assertThat(store.find(kept).get().getResource().getContentAsByteArray()).containsExactly(1);
+        assertThat(store.find(deleted)).isEmpty();
+    }
+
+    @Test
+    public void whenSegmentsSparseThenCompactedAndDeletedBlobsStayDeleted() throws IOException {
+        var locations = new String[10];
+        for (int i = 0; i < locations.length; i++) {
+            locations[i] = store.put("name" + i, write(new byte[300]));
+        }
+        for (int i = 1; i < locations.length; i++) {
+            store.delete(locations[i]);
+        }
+        var before = countSegments();
+        store.compact();
+        assertThat(countSegments()).isLessThan(before);
+        assertThat(store.find(locations[0]).get().getResource().getContentAsByteArray()).hasSize(300);
+        store.close();
+        store = open();
+        assertThat(store.find(locations[0])).isPresent();
+        for (int i = 1; i < locations.length; i++) {
+            assertThat(store.find(locations[i])).isEmpty();
+        }
+    }
+
+    @Test
+    public void whenSegmentHasTornTailThenTailTruncatedAndStoreWritable() throws IOException {
+        var location = store.put("abcdef", write(new byte[]{1, 2, 3}));
+        store.close();
+        try (var segments = Files.list(root.resolve("segments"))) {
+            var segment = segments.findFirst().get();
+            Files.write(segment, new byte[]{0x44, 0x4A, 0x42}, StandardOpenOption.APPEND);
+        }
+        store = open();
+        assertThat(store.find(location).get().getResource().getContentAsByteArray()).containsExactly(1, 2, 3);
+        var next = store.put("fedcba", write(new byte[]{4}));
+        assertThat(store.find(next).get().getResource().getContentAsByteArray()).containsExactly(4);
+    }
+
+    private SegmentBlobStore open() {
+        return new SegmentBlobStore(root.resolve("segments"), new DirectoryBlobStore(root.resolve("files")),
+                MAX_SEGMENT_SIZE, MAX_BLOB_SIZE, 0.5, Duration.ofHours(1));
+    }
+
+    private Path write(byte[] content) throws IOException {
+        return Files.write(Files.createTempFile(root, "upload", ".tmp"), content);
+    }
+
+    private long countSegments() throws IOException {
+        try (Stream<Path> segments = Files.list(root.resolve("segments"))) {
+            return segments.count();
+        }
+    }
+}